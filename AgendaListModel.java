@@ -0,0 +1,171 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.AbstractListModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Rows of an agenda over a range of days, one event per row, paged in from a CalendarModel.
+ *
+ * Only the number of events on each day is kept for the whole range. The events themselves
+ * are fetched a page of rows at a time when a row is first asked for, and only the most
+ * recently used pages are kept, so a list over a range with 100k events holds just the rows
+ * near what is on screen. Give the JList a fixed cell height and width so it does not ask
+ * for every row to measure them.
+ *
+ * Attach it to the model to follow changes; it is meant to be used on the event dispatch thread.
+ */
+@SuppressWarnings("serial")
+public class AgendaListModel extends AbstractListModel<Event> implements ChangeListener {
+
+	private static final int PAGE_SIZE = 256;
+	private static final int MAX_PAGES = 8;
+
+	private final CalendarModel model;
+	private final int fromDay;
+	private final int toDay;
+	/** firstRows[i] is the row of the first event on day fromDay + i; one extra entry holds the size */
+	private int[] firstRows;
+	private final LinkedHashMap<Integer, List<Event>> pages = new LinkedHashMap<Integer, List<Event>>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<Integer, List<Event>> eldest) {
+			return size() > MAX_PAGES;
+		}
+	};
+
+	/**
+	 * Constructor for the AgendaListModel
+	 * @param model Calendar to list
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 */
+	public AgendaListModel(CalendarModel model, int fromDay, int toDay) {
+		if (toDay < fromDay) {
+			throw new IllegalArgumentException("Range ends before it starts: " + fromDay + " to " + toDay);
+		}
+		this.model = model;
+		this.fromDay = fromDay;
+		this.toDay = toDay;
+		count();
+	}
+
+	public int getFromDay() {
+		return fromDay;
+	}
+
+	public int getToDay() {
+		return toDay;
+	}
+
+	public int getSize() {
+		return firstRows[firstRows.length - 1];
+	}
+
+	/**
+	 * Gets the event in a row, reading in its page if needed
+	 * @param index Row
+	 * @return event
+	 */
+	public Event getElementAt(int index) {
+		int page = index / PAGE_SIZE;
+		List<Event> rows = pages.get(page);
+		if (rows == null) {
+			rows = readPage(page);
+			if (rows == null) {
+				// The model changed since the last count; its change notice will recount
+				return new Event("", DateKey.format(getDayAt(index)), "00:00", "");
+			}
+			pages.put(page, rows);
+		}
+		return rows.get(index - page * PAGE_SIZE);
+	}
+
+	/**
+	 * Gets the day an event row falls on without reading the row in
+	 * @param index Row
+	 * @return epoch day
+	 */
+	public int getDayAt(int index) {
+		return fromDay + dayOfRow(index);
+	}
+
+	/**
+	 * Gets the first row on or after a day
+	 * @param day Epoch day
+	 * @return row, or getSize() if no event follows
+	 */
+	public int getRowOf(int day) {
+		return firstRows[Math.max(0, Math.min(day, toDay + 1) - fromDay)];
+	}
+
+	/**
+	 * Recounts and drops the cached pages when events change inside the range
+	 * @param e Change, a CalendarChange for a typed change
+	 */
+	public void stateChanged(ChangeEvent e) {
+		if (e instanceof CalendarChange && !((CalendarChange) e).isEventsChanged(fromDay, toDay)) {
+			return;
+		}
+		int oldSize = getSize();
+		count();
+		int newSize = getSize();
+		if (newSize > oldSize) {
+			fireIntervalAdded(this, oldSize, newSize - 1);
+		} else if (newSize < oldSize) {
+			fireIntervalRemoved(this, newSize, oldSize - 1);
+		}
+		if (Math.min(oldSize, newSize) > 0) {
+			fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+		}
+	}
+
+	private void count() {
+		int[] counts = model.getEventCounts(fromDay, toDay);
+		int[] rows = new int[counts.length + 1];
+		for (int i = 0; i < counts.length; i++) {
+			rows[i + 1] = rows[i] + counts[i];
+		}
+		firstRows = rows;
+		pages.clear();
+	}
+
+	/**
+	 * Finds the day holding a row: the last day whose first row is at or before it
+	 */
+	private int dayOfRow(int row) {
+		int i = Arrays.binarySearch(firstRows, row);
+		if (i < 0) {
+			return -i - 2;
+		}
+		// Days without events share their first row with the next day; take the last of them
+		while (i + 1 < firstRows.length && firstRows[i + 1] == row) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Reads the events of a page of rows
+	 * @return rows of the page, or null if the model no longer matches the counts
+	 */
+	private List<Event> readPage(int page) {
+		int first = page * PAGE_SIZE;
+		int last = Math.min(first + PAGE_SIZE, getSize()) - 1;
+		int firstDay = dayOfRow(first);
+		int lastDay = dayOfRow(last);
+		List<Event> events = model.getEventsBetween(fromDay + firstDay, fromDay + lastDay);
+		int offset = first - firstRows[firstDay];
+		if (events.size() < offset + last - first + 1) {
+			return null;
+		}
+		return new ArrayList<Event>(events.subList(offset, offset + last - first + 1));
+	}
+}
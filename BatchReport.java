@@ -0,0 +1,142 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What CalendarModel.createEvents or checkEvents decided for each event of a batch, in the
+ * order the batch was given: accepted, or rejected along with an event it overlaps.
+ */
+public class BatchReport {
+
+	/**
+	 * Outcome for one event of a batch
+	 */
+	public enum Status {
+		/** No overlap; created if the batch was committed */
+		ACCEPTED,
+		/** Overlaps an event already in the calendar, stored or repeating */
+		CONFLICTS_WITH_CALENDAR,
+		/** Overlaps an earlier accepted event of the same batch */
+		CONFLICTS_WITH_BATCH
+	}
+
+	private final List<Event> batch;
+	private final Status[] status;
+	private final Event[] conflict;
+	private int accepted;
+	private boolean committed;
+
+	/**
+	 * Constructor for a report with every event accepted
+	 * @param batch Events of the batch
+	 */
+	public BatchReport(List<Event> batch) {
+		this.batch = batch;
+		status = new Status[batch.size()];
+		conflict = new Event[batch.size()];
+		Arrays.fill(status, Status.ACCEPTED);
+		accepted = batch.size();
+	}
+
+	/**
+	 * Marks an event of the batch as rejected
+	 * @param i Position in the batch
+	 * @param reason Why it was rejected
+	 * @param other Event it overlaps
+	 */
+	void reject(int i, Status reason, Event other) {
+		if (status[i] == Status.ACCEPTED) {
+			accepted--;
+		}
+		status[i] = reason;
+		conflict[i] = other;
+	}
+
+	void setCommitted(boolean committed) {
+		this.committed = committed;
+	}
+
+	/**
+	 * Number of events in the batch
+	 * @return size
+	 */
+	public int size() {
+		return batch.size();
+	}
+
+	/**
+	 * Gets an event of the batch
+	 * @param i Position in the batch
+	 * @return event
+	 */
+	public Event getEvent(int i) {
+		return batch.get(i);
+	}
+
+	/**
+	 * Gets the outcome for an event of the batch
+	 * @param i Position in the batch
+	 * @return status
+	 */
+	public Status getStatus(int i) {
+		return status[i];
+	}
+
+	/**
+	 * Gets an event that a rejected event overlaps
+	 * @param i Position in the batch
+	 * @return overlapping event, or null if the event was accepted
+	 */
+	public Event getConflict(int i) {
+		return conflict[i];
+	}
+
+	public int getAcceptedCount() {
+		return accepted;
+	}
+
+	public int getRejectedCount() {
+		return batch.size() - accepted;
+	}
+
+	/**
+	 * Checks whether the accepted events were created
+	 * @return True if they were; false for a check, or for an all-or-nothing batch with a rejection
+	 */
+	public boolean isCommitted() {
+		return committed;
+	}
+
+	/**
+	 * Gets the accepted events in batch order
+	 * @return events
+	 */
+	public List<Event> getAccepted() {
+		ArrayList<Event> events = new ArrayList<Event>(accepted);
+		for (int i = 0; i < status.length; i++) {
+			if (status[i] == Status.ACCEPTED) {
+				events.add(batch.get(i));
+			}
+		}
+		return events;
+	}
+
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(accepted).append(" of ").append(batch.size()).append(" accepted")
+				.append(committed ? ", committed" : ", not committed");
+		for (int i = 0; i < status.length; i++) {
+			if (status[i] != Status.ACCEPTED) {
+				text.append("\n").append(batch.get(i).getDate()).append(" ").append(batch.get(i))
+						.append(": ").append(status[i]).append(" ").append(conflict[i]);
+			}
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,91 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import javax.swing.event.ChangeEvent;
+
+/**
+ * A change to a CalendarModel, telling listeners what changed instead of just that
+ * something did. Changes made between two deliveries are merged into one: the kinds are
+ * combined and the changed days widen to cover every change.
+ */
+@SuppressWarnings("serial")
+public class CalendarChange extends ChangeEvent {
+
+	/** The selected date moved */
+	public static final int SELECTION = 1;
+	/** A different month is shown */
+	public static final int MONTH = 2;
+	/** Events were added or removed on the days from getFromDay() to getToDay() */
+	public static final int EVENTS = 4;
+
+	private final int kinds;
+	private final int fromDay;
+	private final int toDay;
+
+	/**
+	 * Constructor for the CalendarChange
+	 * @param source Model that changed
+	 * @param kinds SELECTION, MONTH and EVENTS or-ed together
+	 * @param fromDay First epoch day whose events changed, inclusive
+	 * @param toDay Last epoch day whose events changed, inclusive
+	 */
+	public CalendarChange(Object source, int kinds, int fromDay, int toDay) {
+		super(source);
+		this.kinds = kinds;
+		this.fromDay = fromDay;
+		this.toDay = toDay;
+	}
+
+	/**
+	 * Checks whether the selected date moved
+	 * @return True if it did
+	 */
+	public boolean isSelectionChanged() {
+		return (kinds & SELECTION) != 0;
+	}
+
+	/**
+	 * Checks whether a different month is shown
+	 * @return True if it is
+	 */
+	public boolean isMonthChanged() {
+		return (kinds & MONTH) != 0;
+	}
+
+	/**
+	 * Checks whether events were added or removed
+	 * @return True if they were
+	 */
+	public boolean isEventsChanged() {
+		return (kinds & EVENTS) != 0;
+	}
+
+	/**
+	 * Gets the first day whose events changed
+	 * @return epoch day
+	 */
+	public int getFromDay() {
+		return fromDay;
+	}
+
+	/**
+	 * Gets the last day whose events changed
+	 * @return epoch day
+	 */
+	public int getToDay() {
+		return toDay;
+	}
+
+	/**
+	 * Checks whether the events of any day in a range changed
+	 * @param from First epoch day, inclusive
+	 * @param to Last epoch day, inclusive
+	 * @return True if events changed in the range
+	 */
+	public boolean isEventsChanged(int from, int to) {
+		return isEventsChanged() && fromDay <= to && toDay >= from;
+	}
+}
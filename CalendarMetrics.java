@@ -0,0 +1,158 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Timings and counts of one CalendarModel, published as the MXBean
+ * SimpleCalendar:type=CalendarModel,id=N.
+ *
+ * Timing is off unless the calendar.metrics system property is true or it is switched on
+ * over JMX; while off, start() returns 0 and record() returns at once, so an operation pays
+ * for one volatile read. Setting calendar.metrics.log to a number of seconds also writes
+ * dump() to the CalendarMetrics logger at that interval.
+ */
+public class CalendarMetrics implements CalendarMetricsMXBean {
+
+	private static final AtomicInteger ids = new AtomicInteger();
+	private static final Logger log = Logger.getLogger("CalendarMetrics");
+
+	final LatencyHistogram createEvent = new LatencyHistogram();
+	final LatencyHistogram conflictCheck = new LatencyHistogram();
+	final LatencyHistogram dayQuery = new LatencyHistogram();
+	final LatencyHistogram save = new LatencyHistogram();
+	final LatencyHistogram load = new LatencyHistogram();
+
+	private final CalendarModel model;
+	private volatile boolean enabled = Boolean.getBoolean("calendar.metrics");
+	private ObjectName name;
+	private ScheduledFuture<?> logging;
+
+	/**
+	 * Constructor for the CalendarMetrics
+	 * @param model Calendar whose stored events and bytes written are reported
+	 */
+	public CalendarMetrics(CalendarModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Gets the time to pass to LatencyHistogram.record() when the operation ends
+	 * @return System.nanoTime(), or 0 when timing is off
+	 */
+	public long start() {
+		if (!enabled) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		return now == 0 ? 1 : now;
+	}
+
+	/**
+	 * Registers the MXBean, and starts the periodic log if calendar.metrics.log asks for it
+	 * @param scheduler Executor to run the periodic log on
+	 */
+	public void register(ScheduledExecutorService scheduler) {
+		try {
+			name = new ObjectName("SimpleCalendar:type=CalendarModel,id=" + ids.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		} catch (JMException ex) {
+			ex.printStackTrace();
+		}
+		long seconds = Long.getLong("calendar.metrics.log", 0L);
+		if (seconds > 0) {
+			logging = scheduler.scheduleAtFixedRate(new Runnable() {
+				public void run() {
+					log.info(dump());
+				}
+			}, seconds, seconds, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Unregisters the MXBean and stops the periodic log
+	 */
+	public void unregister() {
+		if (logging != null) {
+			logging.cancel(false);
+		}
+		if (name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			} catch (JMException ex) {
+				ex.printStackTrace();
+			}
+			name = null;
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public LatencyHistogram getCreateEvent() {
+		return createEvent;
+	}
+
+	public LatencyHistogram getConflictCheck() {
+		return conflictCheck;
+	}
+
+	public LatencyHistogram getDayQuery() {
+		return dayQuery;
+	}
+
+	public LatencyHistogram getSave() {
+		return save;
+	}
+
+	public LatencyHistogram getLoad() {
+		return load;
+	}
+
+	public int getEventCount() {
+		return model.getEventCount();
+	}
+
+	public int getLoadedDayCount() {
+		return model.getLoadedDayCount();
+	}
+
+	public long getBytesWritten() {
+		return model.getBytesWritten();
+	}
+
+	public void reset() {
+		createEvent.reset();
+		conflictCheck.reset();
+		dayQuery.reset();
+		save.reset();
+		load.reset();
+	}
+
+	public String dump() {
+		StringBuilder out = new StringBuilder();
+		out.append("events=").append(getEventCount()).append(" loadedDays=").append(getLoadedDayCount())
+				.append(" bytesWritten=").append(getBytesWritten()).append(enabled ? "" : " (timing off)");
+		out.append("\n  createEvent   ").append(createEvent);
+		out.append("\n  conflictCheck ").append(conflictCheck);
+		out.append("\n  dayQuery      ").append(dayQuery);
+		out.append("\n  save          ").append(save);
+		out.append("\n  load          ").append(load);
+		return out.toString();
+	}
+}
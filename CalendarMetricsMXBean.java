@@ -0,0 +1,42 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+/**
+ * JMX view of CalendarMetrics; each operation shows as count, mean, p50, p99 and max.
+ */
+public interface CalendarMetricsMXBean {
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	LatencyHistogram getCreateEvent();
+
+	LatencyHistogram getConflictCheck();
+
+	LatencyHistogram getDayQuery();
+
+	LatencyHistogram getSave();
+
+	LatencyHistogram getLoad();
+
+	int getEventCount();
+
+	int getLoadedDayCount();
+
+	long getBytesWritten();
+
+	/**
+	 * Forgets the recorded times; counts of stored events are unaffected
+	 */
+	void reset();
+
+	/**
+	 * Describes everything on a few lines, as written to the periodic log
+	 * @return summary
+	 */
+	String dump();
+}
@@ -1,37 +1,154 @@
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
-import javax.swing.event.ChangeEvent;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeListener;
 
+/**
+ * Model of the calendar: the selected date and month, and every event.
+ * It may be used from any thread. Changes take a single write lock, queries share
+ * a read lock, and listeners are always told about changes on the Event Dispatch Thread.
+ *
+ * Every change is journaled as it is made. A background thread folds the journal into a
+ * snapshot a few seconds after the last change, and once more when the JVM exits.
+ *
+ * Listeners receive a CalendarChange saying what changed. Changes are collected until the
+ * Event Dispatch Thread gets to them, so a burst of changes reaches each listener as one.
+ *
+ * Operation timings and stored counts are kept in a CalendarMetrics published over JMX.
+ *
+ * Every change is also recorded in an EditHistory, so it can be undone and redone.
+ *
+ * A ReminderScheduler may follow the model, reminding of events before they start; changes
+ * add and cancel its reminders as they are made.
+ *
+ * An event may run past midnight, overnight or for days. Such events are found through an
+ * IntervalTree by their start and end instants, and take part in every day they cover:
+ * its agenda, its highlight in the month and its conflict checks.
+ *
+ * A model may also load in the background so a window can open at once: the current month
+ * arrives first and the rest of history follows, each stage reported as an EVENTS change.
+ */
 public class CalendarModel implements Serializable {
 	
-	private int maxDays;
-	private int selectedDate;
-	private HashMap<String, ArrayList<Event>> mapOfEvent;
-	private ArrayList<ChangeListener> listeners;
-	private GregorianCalendar c = new GregorianCalendar();
-	private boolean monthChanged = false;
+	private volatile int selectedDate;
+	private EventIndex eventIndex;
+	private CopyOnWriteArrayList<ChangeListener> listeners;
+	private MonthLayout previous;
+	private volatile MonthLayout current;
+	private MonthLayout next;
+	private volatile boolean monthChanged = false;
+	private File directory;
+	private transient EventJournal journal;
+	private final transient StampedLock lock = new StampedLock();
+	private final transient Object pendingLock = new Object();
+	private final transient Object saveLock = new Object();
+	private transient ScheduledExecutorService saver;
+	private transient ScheduledFuture<?> pendingSave;
+	private transient Thread saveOnExit;
+	private final transient CalendarMetrics metrics = new CalendarMetrics(this);
+	private final transient EditHistory history = new EditHistory();
+	/** Released once the current month is loaded; changes wait on it */
+	private final transient CountDownLatch loaded = new CountDownLatch(1);
+	private transient volatile boolean historyLoaded;
+	/** Why background loading failed, or null */
+	private transient volatile RuntimeException loadFailure;
+	private transient volatile boolean closed;
+	private transient volatile ReminderScheduler reminders;
+	
+	/** How long after the last change the background save waits */
+	private static final long AUTOSAVE_DELAY_MILLIS = 3000;
+	/** Days of occurrences a repeating event is checked for conflicts over when imported */
+	private static final int RULE_CHECK_DAYS = 366;
+	private int pendingKinds;
+	private int pendingFrom;
+	private int pendingTo;
 	
 	/**
-	 * Constructor for the CalendarModel
+	 * Constructor for the CalendarModel; events are stored in the working directory
 	 */
 	public CalendarModel() {
-		maxDays = c.getActualMaximum(Calendar.DAY_OF_MONTH);
-		selectedDate = c.get(Calendar.DATE);
-		mapOfEvent = new HashMap<>();
-		listeners = new ArrayList<ChangeListener>();
-		load();
+		this(new File("."));
+	}
+	
+	/**
+	 * Constructor for the CalendarModel; returns once the events are loaded
+	 * @param directory Directory the events are stored in
+	 */
+	public CalendarModel(File directory) {
+		this(directory, false);
+	}
+	
+	/**
+	 * Constructor for the CalendarModel
+	 * @param directory Directory the events are stored in
+	 * @param loadInBackground True to return at once and load on a background thread, the
+	 *        current month first and then the rest of history nearest month first. Queries
+	 *        see no events until the current month is in and changes wait for it; listeners
+	 *        hear about each stage as it lands.
+	 */
+	public CalendarModel(File directory, boolean loadInBackground) {
+		this.directory = directory;
+		journal = new EventJournal(new File(directory, "events.snapshot"), new File(directory, "events.journal"));
+		LocalDate today = LocalDate.now();
+		showMonth(YearMonth.from(today));
+		selectedDate = today.getDayOfMonth();
+		eventIndex = new EventIndex();
+		listeners = new CopyOnWriteArrayList<ChangeListener>();
+		saver = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "calendar-autosave");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		saveOnExit = new Thread(new Runnable() {
+			public void run() {
+				saver.shutdown();
+				awaitLoadedQuietly();
+				if (loadFailure == null) {
+					save();
+				}
+			}
+		}, "calendar-save-on-exit");
+		Runtime.getRuntime().addShutdownHook(saveOnExit);
+		metrics.register(saver);
+		if (loadInBackground) {
+			Thread loader = new Thread(new Runnable() {
+				public void run() {
+					loadStaged();
+				}
+			}, "calendar-load");
+			loader.setDaemon(true);
+			loader.setPriority(Thread.MIN_PRIORITY);
+			loader.start();
+			return;
+		}
+		load(eventIndex);
+		if (journal.hasRecords()) {
+			scheduleSave(AUTOSAVE_DELAY_MILLIS);
+		}
+		loaded.countDown();
+		historyLoaded = true;
 	}
 	
 	/**
@@ -43,12 +160,55 @@ public class CalendarModel implements Serializable {
 	}
 	
 	/**
-	 * Updates the ChangeListeners in the array
+	 * Detaches a ChangeListener; safe while the listeners are being updated
+	 * @param l ChangeListener
+	 */
+	public void detach(ChangeListener l) {
+		listeners.remove(l);
+	}
+	
+	/**
+	 * Updates the ChangeListeners in the array as if everything had changed
 	 */
 	public void update() {
-		for(ChangeListener l : listeners) {
-			l.stateChanged(new ChangeEvent(this));
+		fireChange(CalendarChange.SELECTION | CalendarChange.MONTH | CalendarChange.EVENTS, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Adds a change to the pending one, and has the Event Dispatch Thread deliver it
+	 * unless a delivery is already on its way
+	 * @param kinds CalendarChange kinds
+	 * @param fromDay First epoch day whose events changed
+	 * @param toDay Last epoch day whose events changed
+	 */
+	private void fireChange(int kinds, int fromDay, int toDay) {
+		if (listeners.isEmpty()) {
+			return;
 		}
+		synchronized (pendingLock) {
+			boolean scheduled = pendingKinds != 0;
+			if ((kinds & CalendarChange.EVENTS) != 0) {
+				boolean hadEvents = (pendingKinds & CalendarChange.EVENTS) != 0;
+				pendingFrom = hadEvents ? Math.min(pendingFrom, fromDay) : fromDay;
+				pendingTo = hadEvents ? Math.max(pendingTo, toDay) : toDay;
+			}
+			pendingKinds |= kinds;
+			if (scheduled) {
+				return;
+			}
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				CalendarChange change;
+				synchronized (pendingLock) {
+					change = new CalendarChange(CalendarModel.this, pendingKinds, pendingFrom, pendingTo);
+					pendingKinds = 0;
+				}
+				for(ChangeListener l : listeners) {
+					l.stateChanged(change);
+				}
+			}
+		});
 	}
 	
 	/**
@@ -56,7 +216,13 @@ public class CalendarModel implements Serializable {
 	 * @param day
 	 */
 	public void setSelectedDate(int day) {
+		long stamp = lock.writeLock();
+		boolean moved = selectedDate != day;
 		selectedDate = day;
+		lock.unlockWrite(stamp);
+		if (moved) {
+			fireChange(CalendarChange.SELECTION, 0, 0);
+		}
 	}
 	
 	/**
@@ -72,15 +238,23 @@ public class CalendarModel implements Serializable {
 	 * @return current year
 	 */
 	public int getYear() {
-		return c.get(Calendar.YEAR);
+		return current.getYear();
 	}
 	
 	/**
 	 * Gets the current month
-	 * @return current month
+	 * @return current month (0-11)
 	 */
 	public int getMonth() {
-		return c.get(Calendar.MONTH);
+		return current.getMonth() - 1;
+	}
+	
+	/**
+	 * Gets the layout of the current month
+	 * @return current month layout
+	 */
+	public MonthLayout getMonthLayout() {
+		return current;
 	}
 	
 	/**
@@ -89,8 +263,7 @@ public class CalendarModel implements Serializable {
 	 * @return Day of the week (1-7)
 	 */
 	public int getDayOfWeek(int i) {
-		c.set(Calendar.DAY_OF_MONTH, i);
-		return c.get(Calendar.DAY_OF_WEEK);
+		return current.getDayOfWeek(i);
 	}
 	
 	/**
@@ -98,51 +271,128 @@ public class CalendarModel implements Serializable {
 	 * @return maxDays
 	 */
 	public int getMaxDays() {
-		return maxDays;
+		return current.getLength();
 	}
 	
 	/**
 	 * Calendar goes forward by one month
 	 */
 	public void goNextMonth() {
-		c.add(Calendar.MONTH, 1);
-		maxDays = c.getActualMaximum(Calendar.DAY_OF_MONTH);
-		monthChanged = true;
-		update();
+		long stamp = lock.writeLock();
+		try {
+			previous = current;
+			current = next;
+			next = MonthLayout.of(current.getYearMonth().plusMonths(1));
+			monthMoved();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(CalendarChange.MONTH, 0, 0);
 	}
 	
 	/**
 	 * Calendar goes backwards by one month
 	 */
 	public void goPreviousMonth() {
-		c.add(Calendar.MONTH, -1);
-		maxDays = c.getActualMaximum(Calendar.DAY_OF_MONTH);
-		monthChanged = true;
-		update();
+		long stamp = lock.writeLock();
+		try {
+			next = current;
+			current = previous;
+			previous = MonthLayout.of(current.getYearMonth().minusMonths(1));
+			monthMoved();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(CalendarChange.MONTH, 0, 0);
+	}
+	
+	/**
+	 * Calendar goes to a date, changing the month if needed
+	 * @param day Epoch day to select
+	 */
+	public void goToDate(int day) {
+		int kinds = CalendarChange.SELECTION;
+		long stamp = lock.writeLock();
+		try {
+			if (!current.contains(day)) {
+				LocalDate date = LocalDate.ofEpochDay(day);
+				showMonth(YearMonth.of(date.getYear(), date.getMonthValue()));
+				monthChanged = true;
+				kinds |= CalendarChange.MONTH;
+			}
+			selectedDate = day - current.getFirstDay() + 1;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(kinds, 0, 0);
 	}
 	
 	/**
 	 * Calendar goes to the next day
 	 */
 	public void goNextDay() {
-		selectedDate++;
-		if(selectedDate > c.getActualMaximum(Calendar.DAY_OF_MONTH)) {
-			goNextMonth();
-			selectedDate = 1;
+		boolean moved = false;
+		long stamp = lock.writeLock();
+		try {
+			selectedDate++;
+			if(selectedDate > current.getLength()) {
+				showMonth(next.getYearMonth());
+				monthMoved();
+				moved = true;
+				selectedDate = 1;
+			}
+		} finally {
+			lock.unlockWrite(stamp);
 		}
-		update();
+		fireChange(moved ? CalendarChange.SELECTION | CalendarChange.MONTH : CalendarChange.SELECTION, 0, 0);
 	}
 	
 	/**
 	 * Calendar goes to the previous day
 	 */
 	public void goPreviousDay() {
-		selectedDate--;
-		if(selectedDate < 1) {
-			goPreviousMonth();
-			selectedDate = c.getActualMaximum(Calendar.DAY_OF_MONTH);
+		boolean moved = false;
+		long stamp = lock.writeLock();
+		try {
+			selectedDate--;
+			if(selectedDate < 1) {
+				showMonth(previous.getYearMonth());
+				monthMoved();
+				moved = true;
+				selectedDate = current.getLength();
+			}
+		} finally {
+			lock.unlockWrite(stamp);
 		}
-		update();
+		fireChange(moved ? CalendarChange.SELECTION | CalendarChange.MONTH : CalendarChange.SELECTION, 0, 0);
+	}
+	
+	/**
+	 * Makes a month current, reusing the cached layouts of its neighbours when possible
+	 * @param month Month to show
+	 */
+	private void showMonth(YearMonth month) {
+		if (current != null && month.equals(next.getYearMonth())) {
+			previous = current;
+			current = next;
+			next = MonthLayout.of(month.plusMonths(1));
+		} else if (current != null && month.equals(previous.getYearMonth())) {
+			next = current;
+			current = previous;
+			previous = MonthLayout.of(month.minusMonths(1));
+		} else {
+			previous = MonthLayout.of(month.minusMonths(1));
+			current = MonthLayout.of(month);
+			next = MonthLayout.of(month.plusMonths(1));
+		}
+	}
+	
+	/**
+	 * Keeps the selected date inside the new month; called with the write lock held
+	 */
+	private void monthMoved() {
+		selectedDate = Math.min(selectedDate, current.getLength());
+		monthChanged = true;
 	}
 	
 	/**
@@ -161,13 +411,309 @@ public class CalendarModel implements Serializable {
 		monthChanged = false;
 	}
 	
+	/**
+	 * Takes the read lock for a query over a range of days.
+	 * Months still to be read from the snapshot are read first under the write lock,
+	 * which is then downgraded, so the query itself never changes the index.
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return read stamp
+	 */
+	private long readLock(int fromDay, int toDay) {
+		long stamp = lock.readLock();
+		if (eventIndex.isLoaded(fromDay, toDay)) {
+			return stamp;
+		}
+		lock.unlockRead(stamp);
+		stamp = lock.writeLock();
+		eventIndex.load(fromDay, toDay);
+		return lock.tryConvertToReadLock(stamp);
+	}
+	
 	/**
 	 * This will check to see if the selected date has any events scheduled
 	 * @param date Selected date in the format of MM/DD/YYYY
 	 * @return True if the date has an event scheduled
 	 */
 	public boolean hasEvent(String date) {
-		return mapOfEvent.containsKey(date);
+		return hasEvent(DateKey.parse(date));
+	}
+	
+	/**
+	 * This will check to see if a day has any events scheduled
+	 * @param day Epoch day
+	 * @return True if the day has an event scheduled
+	 */
+	public boolean hasEvent(int day) {
+		long stamp = readLock(day, day);
+		try {
+			return eventIndex.contains(day) || recursOn(day) || spansDay(day);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Checks whether an event running past midnight covers part of a day
+	 * @param day Epoch day
+	 * @return True if such an event starts, ends or runs through the day
+	 */
+	private boolean spansDay(int day) {
+		return eventIndex.getSpans().firstOverlapping(day * 1440L, day * 1440L + 1440) != null;
+	}
+	
+	/**
+	 * Checks whether any repeating event occurs on a day
+	 * @param day Epoch day
+	 * @return True if a recurrence has an occurrence on the day
+	 */
+	private boolean recursOn(int day) {
+		for (Recurrence r : eventIndex.getRecurrences()) {
+			if (r.occursOn(day)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets which days of the current month have events scheduled
+	 * @return mask with bit (d - 1) set when day d has an event
+	 */
+	public int getEventMask() {
+		return getEventMask(current.getFirstDay());
+	}
+	
+	/**
+	 * Gets which days of any month have events scheduled
+	 * @param first Epoch day of the 1st of the month
+	 * @return mask with bit (d - 1) set when day d has an event
+	 */
+	public int getEventMask(int first) {
+		int end = first + LocalDate.ofEpochDay(first).lengthOfMonth();
+		long stamp = readLock(first, end - 1);
+		try {
+			int mask = eventIndex.monthMask(first);
+			for (Recurrence r : eventIndex.getRecurrences()) {
+				for (int d = r.nextOccurrence(first); d < end; d = r.nextOccurrence(d + 1)) {
+					mask |= 1 << (d - first);
+				}
+			}
+			ArrayList<Event> spans = new ArrayList<Event>();
+			eventIndex.getSpans().overlapping(first * 1440L, end * 1440L, spans);
+			for (Event e : spans) {
+				for (int d = Math.max(e.getDay(), first); d <= Math.min(e.getEndDay(), end - 1); d++) {
+					mask |= 1 << (d - first);
+				}
+			}
+			return mask;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the epoch day of the selected date
+	 * @return epoch day
+	 */
+	public int getSelectedDay() {
+		long stamp = lock.tryOptimisticRead();
+		MonthLayout month = current;
+		int date = selectedDate;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			month = current;
+			date = selectedDate;
+			lock.unlockRead(stamp);
+		}
+		return month.getEpochDay(date);
+	}
+	
+	/**
+	 * Gets all events scheduled between two days, in day order
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return events in the range
+	 */
+	public List<Event> getEventsBetween(int fromDay, int toDay) {
+		return getEventsBetween(fromDay, toDay, true);
+	}
+	
+	/**
+	 * Gets the events stored between two days, leaving out repeating events
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return stored events in the range, in day order
+	 */
+	public List<Event> getStoredEventsBetween(int fromDay, int toDay) {
+		return getEventsBetween(fromDay, toDay, false);
+	}
+	
+	private List<Event> getEventsBetween(int fromDay, int toDay, boolean occurrences) {
+		ArrayList<Event> result = new ArrayList<>();
+		boolean recurring = false;
+		long stamp = readLock(fromDay, toDay);
+		try {
+			for (int s = eventIndex.ceilingSlot(fromDay); s < eventIndex.size() && eventIndex.dayAt(s) <= toDay; s++) {
+				for (Event e : eventIndex.eventsAt(s)) {
+					result.add(e);
+				}
+			}
+			for (Recurrence r : occurrences ? eventIndex.getRecurrences() : Collections.<Recurrence>emptyList()) {
+				for (int d = r.nextOccurrence(fromDay); d <= toDay; d = r.nextOccurrence(d + 1)) {
+					result.add(r.occurrence(d));
+					recurring = true;
+				}
+			}
+			// Events running past midnight are listed on the day they start
+			int before = result.size();
+			eventIndex.getSpans().startingBetween(fromDay * 1440L, (toDay + 1L) * 1440L, result);
+			recurring |= result.size() > before;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		if (recurring) {
+			Collections.sort(result, Event.DAY_ORDER);
+		}
+		return result;
+	}
+	
+	/**
+	 * Counts the events of every day in a range, repeating events included.
+	 * Reads day sizes only, so it costs one step per day with events rather than per event.
+	 * Months of the snapshot not read in yet are counted where they lie in the file and
+	 * stay unread, so counting a long range does not fill memory with its events.
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return count for each day, with index 0 for fromDay
+	 */
+	public int[] getEventCounts(int fromDay, int toDay) {
+		int[] counts = new int[toDay - fromDay + 1];
+		long stamp = lock.readLock();
+		try {
+			eventIndex.countUnloaded(fromDay, toDay, counts);
+			for (int s = eventIndex.ceilingSlot(fromDay); s < eventIndex.size() && eventIndex.dayAt(s) <= toDay; s++) {
+				counts[eventIndex.dayAt(s) - fromDay] += eventIndex.eventsAt(s).size();
+			}
+			for (Recurrence r : eventIndex.getRecurrences()) {
+				for (int d = r.nextOccurrence(fromDay); d <= toDay; d = r.nextOccurrence(d + 1)) {
+					counts[d - fromDay]++;
+				}
+			}
+			ArrayList<Event> spans = new ArrayList<Event>();
+			eventIndex.getSpans().startingBetween(fromDay * 1440L, (toDay + 1L) * 1440L, spans);
+			for (Event e : spans) {
+				counts[e.getDay() - fromDay]++;
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		return counts;
+	}
+	
+	/**
+	 * Finds events whose title has a word starting with each word of the query.
+	 * Events in memory are found through the title index, which is built on the first
+	 * search and kept up to date as events come and go and months are read in; months
+	 * of the snapshot not read in yet are searched in place, without reading them in.
+	 * @param query Words to look for, such as "dent app" for "Dentist appointment"
+	 * @param limit Most events to return
+	 * @return matching events in day order, with a repeating event as its first occurrence
+	 */
+	public List<Event> searchEvents(String query, int limit) {
+		List<String> terms = TitleIndex.words(query);
+		ArrayList<Event> result = new ArrayList<>();
+		if (terms.isEmpty() || limit <= 0) {
+			return result;
+		}
+		long stamp = lock.readLock();
+		if (!eventIndex.hasTitles()) {
+			lock.unlockRead(stamp);
+			stamp = lock.writeLock();
+			eventIndex.titles();
+			stamp = lock.tryConvertToReadLock(stamp);
+		}
+		try {
+			result.addAll(eventIndex.searchTitles(terms));
+			for (Recurrence r : eventIndex.getRecurrences()) {
+				int first = r.nextOccurrence(r.getStartDay());
+				if (first != Recurrence.FOREVER && TitleIndex.matches(r.getTemplate().getTitle(), terms)) {
+					result.add(r.occurrence(first));
+				}
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		Collections.sort(result, Event.DAY_ORDER);
+		return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+	}
+	
+	/**
+	 * Gets the range of days that may hold stored events
+	 * @return {first, last} epoch day, or {Integer.MAX_VALUE, Integer.MIN_VALUE} if there are none
+	 */
+	public int[] getEventDayRange() {
+		long stamp = lock.readLock();
+		try {
+			return new int[] { eventIndex.firstDay(), eventIndex.lastDay() };
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the repeating events
+	 * @return copy of the recurrence rules
+	 */
+	public List<Recurrence> getRecurrences() {
+		long stamp = lock.readLock();
+		try {
+			return new ArrayList<Recurrence>(eventIndex.getRecurrences());
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the number of stored events, counting months not read in yet
+	 * @return event count
+	 */
+	public int getEventCount() {
+		long stamp = lock.readLock();
+		try {
+			return eventIndex.eventCount();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the number of days with stored events among the months read in so far
+	 * @return day count
+	 */
+	public int getLoadedDayCount() {
+		long stamp = lock.readLock();
+		try {
+			return eventIndex.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the bytes written to the journal and snapshots since the calendar was opened
+	 * @return bytes written
+	 */
+	public long getBytesWritten() {
+		return journal.bytesWritten();
+	}
+	
+	/**
+	 * Gets the timings of this calendar's operations
+	 * @return metrics, also published over JMX
+	 */
+	public CalendarMetrics getMetrics() {
+		return metrics;
 	}
 	
 	/**
@@ -181,147 +727,1305 @@ public class CalendarModel implements Serializable {
 	 * @param endTime Ending time of the event
 	 */
 	public void createEvent(String title, String startTime, String endTime) {
-		String date = (c.get(Calendar.MONTH) + 1) + "/" + selectedDate + "/" + c.get(Calendar.YEAR);
-		Event e = new Event(title, date, startTime, endTime);
-		ArrayList<Event> listOfEvent = new ArrayList<>();
-		if(hasEvent(date)) {
-			listOfEvent = mapOfEvent.get(date);
-		}
-		listOfEvent.add(e);
-		mapOfEvent.put(date, listOfEvent);		
+		createEvent(getSelectedDay(), title, startTime, endTime);
 	}
 	
 	/**
-	 * Converts the 24:00 time to minutes
-	 * @param time Time in the 24:00 format
-	 * @return time converted to minutes
+	 * Creating an event on any day, leaving the selected date alone
+	 * 
+	 * @param day Epoch day of the event
+	 * @param title Title of the event
+	 * @param startTime Starting time of the event
+	 * @param endTime Ending time of the event
 	 */
-	public int convertHourToMin(String time) {
-		int hours = Integer.valueOf(time.substring(0, 2));
-		return hours * 60 + Integer.valueOf(time.substring(3));
+	public void createEvent(int day, String title, String startTime, String endTime) {
+		createEvent(day, title, startTime, day, endTime);
 	}
 	
 	/**
-	 * Comparator to compare the times
-	 * @return comparator
+	 * Creating an event that may run past midnight, overnight or for several days
+	 * 
+	 * @param day Epoch day the event starts on
+	 * @param title Title of the event
+	 * @param startTime Starting time of the event
+	 * @param endDay Epoch day the event ends on
+	 * @param endTime Ending time of the event on its last day
 	 */
-	public static Comparator<Event> timeComparator() {
-		return new Comparator<Event>() {
-			public int compare(Event event1, Event event2) {
-				if(event1.startTime.substring(0, 2).equals(event2.startTime.substring(0, 2))) {
-					return Integer.parseInt(event1.startTime.substring(3, 5)) - Integer.parseInt(event2.startTime.substring(3, 5));
-				}
-				return Integer.parseInt(event1.startTime.substring(0, 2)) - Integer.parseInt(event2.startTime.substring(0,2));
+	public void createEvent(int day, String title, String startTime, int endDay, String endTime) {
+		awaitLoaded();
+		long started = metrics.start();
+		Event e = new Event(title, DateKey.format(day), startTime, DateKey.format(endDay), endTime);
+		long stamp = lock.writeLock();
+		try {
+			if (e.isSpanning()) {
+				eventIndex.addSpan(e);
+			} else {
+				eventIndex.add(day, e);
 			}
-		};
+			remind(e);
+			try {
+				journal.logCreate(day, e);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+			EditHistory.Edit edit = new EditHistory.Edit();
+			edit.added(e);
+			history.record(edit);
+			compactIfNeeded();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		metrics.createEvent.record(started);
+		fireChange(CalendarChange.EVENTS, day, e.getEndDay());
 	}
 	
 	/**
-	 * This will check to see if there are any event time conflicts; Uses comparator
-	 * @param timeStart Starting time of the event
-	 * @param timeEnd Ending time of the event
-	 * @return
+	 * Creating many events at once, such as from an import.
+	 * Events that overlap an existing event, a repeating event, or an earlier event of the
+	 * batch are left out. Listeners are told about the days of the batch.
+	 * 
+	 * @param batch Events to create; each goes on the day of its date
+	 * @return number of events created
 	 */
-	public Boolean hasEventConflict(String timeStart, String timeEnd) {
-		String date = (getMonth() + 1) + "/" + selectedDate + "/" + getYear();
-		if (!hasEvent(date)) {
-			return false;
+	public int createEvents(List<Event> batch) {
+		return createEvents(batch, false).getAcceptedCount();
+	}
+	
+	/**
+	 * Creating many events at once, checking them all first.
+	 * The check and the creation happen under one write lock, so nothing can change in
+	 * between, and the created events are journaled and undone together.
+	 * 
+	 * @param batch Events to create; each goes on the day of its date
+	 * @param allOrNothing True to create nothing if any event is rejected
+	 * @return the outcome for each event of the batch
+	 */
+	public BatchReport createEvents(List<Event> batch, boolean allOrNothing) {
+		awaitLoaded();
+		BatchReport report = new BatchReport(batch);
+		if (batch.isEmpty()) {
+			return report;
 		}
-		
-		ArrayList<Event> eventArray = mapOfEvent.get(date);
-		Collections.sort(eventArray, timeComparator());
-		
-		int timeStartMins = convertHourToMin(timeStart), timeEndMins = convertHourToMin(timeEnd);
-		for (Event e : eventArray) {
-			int eventStartTime = convertHourToMin(e.startTime), eventEndTime = convertHourToMin(e.endTime);
-			if (timeStartMins >= eventStartTime && timeStartMins < eventEndTime) {
-				return true;
-			} else if (timeStartMins <= eventStartTime && timeEndMins > eventStartTime) {
-				return true;
+		List<Event> accepted;
+		long stamp = lock.writeLock();
+		try {
+			eventIndex.load(firstDay(batch), lastDay(batch));
+			accepted = checkEvents(batch, report);
+			if (accepted.isEmpty() || (allOrNothing && report.getRejectedCount() > 0)) {
+				return report;
 			}
+			EditHistory.Edit edit = new EditHistory.Edit();
+			addChecked(accepted, edit);
+			history.record(edit);
+			report.setCommitted(true);
+			compactIfNeeded();
+		} finally {
+			lock.unlockWrite(stamp);
 		}
-		return false;
-	}	
+		fireChange(CalendarChange.EVENTS, accepted.get(0).getDay(), lastDay(accepted));
+		return report;
+	}
 	
 	/**
-	 * String representation of all the events scheduled on the selected date
-	 * @param date Date to get all the events
-	 * @return String representation of all events scheduled on the date
+	 * Creating many events and repeating events at once, as an import does.
+	 * Everything is checked and created under one write lock, undone together and told to
+	 * listeners once. A repeating event is left out if one of its occurrences in its first
+	 * RULE_CHECK_DAYS days overlaps the calendar or a repeating event created before it;
+	 * the events are then checked as createEvents does, against the new repeating events too.
+	 * 
+	 * @param batch Events to create; each goes on the day of its date
+	 * @param rules Repeating events to create; their ids are ignored and new ones given out
+	 * @return number of events and repeating events created
 	 */
-	public String getEvents(String date) {
-		ArrayList<Event> listOfEvent = mapOfEvent.get(date);
-		Collections.sort(listOfEvent, timeComparator());
-		String events = "";
-		int i = 1;
-		for(Event e : listOfEvent) {
-			events += i + "   " + e.toString() + "\n";
-			i++;
+	public int createEvents(List<Event> batch, List<Recurrence> rules) {
+		if (rules.isEmpty()) {
+			return createEvents(batch);
+		}
+		awaitLoaded();
+		int created = 0;
+		int fromDay = Integer.MAX_VALUE, toDay = Integer.MIN_VALUE;
+		long stamp = lock.writeLock();
+		try {
+			EditHistory.Edit edit = new EditHistory.Edit();
+			for (Recurrence r : rules) {
+				if (ruleConflicts(r)) {
+					continue;
+				}
+				// The count is already folded into the last day
+				putRecurrence(new Recurrence(eventIndex.nextRecurrenceId(), r.getFrequency(), r.getInterval(),
+						r.getStartDay(), r.getUntilDay(), 0, r.getExceptions(), r.getTemplate()), edit);
+				created++;
+				fromDay = Math.min(fromDay, r.getStartDay());
+				toDay = Math.max(toDay, r.getUntilDay());
+			}
+			if (!batch.isEmpty()) {
+				eventIndex.load(firstDay(batch), lastDay(batch));
+				List<Event> accepted = checkEvents(batch, new BatchReport(batch));
+				if (!accepted.isEmpty()) {
+					addChecked(accepted, edit);
+					created += accepted.size();
+					fromDay = Math.min(fromDay, accepted.get(0).getDay());
+					toDay = Math.max(toDay, lastDay(accepted));
+				}
+			}
+			history.record(edit);
+			compactIfNeeded();
+		} finally {
+			lock.unlockWrite(stamp);
 		}
-		return events;
+		if (created > 0) {
+			fireChange(CalendarChange.EVENTS, fromDay, toDay);
+		}
+		return created;
 	}
 	
 	/**
-	 * Saves all events to "events.txt".
+	 * Stores and journals events that passed the conflict check; called with the write lock held
+	 * @param accepted Events in day and time order
+	 * @param edit Receives the events
 	 */
-	public void save() {
-		if (mapOfEvent.isEmpty()) {
-			return;
-		}
+	private void addChecked(List<Event> accepted, EditHistory.Edit edit) {
+		store(accepted);
 		try {
-			FileOutputStream fOut = new FileOutputStream("events.txt");
-			ObjectOutputStream oOut = new ObjectOutputStream(fOut);
-			oOut.writeObject(mapOfEvent);
-			oOut.close();
-			fOut.close();
+			journal.logCreates(accepted);
 		} catch (IOException ex) {
 			ex.printStackTrace();
 		}
+		edit.added(accepted);
 	}
-
+	
 	/**
-	 * Loads all events from "events.ser".
+	 * Adds events to the index; called with the write lock held
+	 * @param events Events in day and time order, with their days loaded
 	 */
-	private void load() {
-		try {
-			FileInputStream fIn = new FileInputStream("events.txt");
-			ObjectInputStream oIn = new ObjectInputStream(fIn);
-			HashMap<String, ArrayList<Event>> temp = (HashMap<String, ArrayList<Event>>) oIn.readObject();
-			for (String date : temp.keySet()) {
-				if (hasEvent(date)) {
-					ArrayList<Event> eventArray = mapOfEvent.get(date);
-					eventArray.addAll(temp.get(date));
-				} else {
-					mapOfEvent.put(date, temp.get(date));
-				}
+	private void store(List<Event> events) {
+		ArrayList<Event> days = new ArrayList<Event>(events.size());
+		for (Event e : events) {
+			if (e.isSpanning()) {
+				eventIndex.addSpan(e);
+			} else {
+				days.add(e);
 			}
-			oIn.close();
-			fIn.close();
-		} catch (IOException ioe) {
-		} catch (ClassNotFoundException c) {
-			System.out.println("Class not found");
-			c.printStackTrace();
+		}
+		eventIndex.addAll(days);
+		ReminderScheduler s = reminders;
+		if (s != null) {
+			s.schedule(events);
 		}
 	}
 	
 	/**
-	 * Deletes an event from the array
+	 * Gets the first day any of some events covers
+	 * @param events Events
+	 * @return epoch day
 	 */
-	public void deleteEvent() {
-		String date = (c.get(Calendar.MONTH) + 1) + "/" + selectedDate + "/" + c.get(Calendar.YEAR);
-		ArrayList<Event> listOfEvent = mapOfEvent.get(date);
-		listOfEvent.clear();
-		update();
+	private static int firstDay(List<Event> events) {
+		int first = Integer.MAX_VALUE;
+		for (Event e : events) {
+			first = Math.min(first, e.getDay());
+		}
+		return first;
 	}
 	
 	/**
-	 * Deletes an specific event from the array
+	 * Gets the last day any of some events covers
+	 * @param events Events
+	 * @return epoch day
 	 */
-	public void deleteSpecificEvent(String eventNum) {
-		String date = (c.get(Calendar.MONTH) + 1) + "/" + selectedDate + "/" + c.get(Calendar.YEAR);
-		ArrayList<Event> listOfEvent = mapOfEvent.get(date);
-		listOfEvent.remove(Integer.parseInt(eventNum));
-		update();
+	private static int lastDay(List<Event> events) {
+		int last = Integer.MIN_VALUE;
+		for (Event e : events) {
+			last = Math.max(last, e.getEndDay());
+		}
+		return last;
 	}
-
-}
-
+	
+	/**
+	 * Checks which events of a batch createEvents would accept, without creating any
+	 * 
+	 * @param batch Proposed events; each goes on the day of its date
+	 * @return the outcome for each event of the batch
+	 */
+	public BatchReport checkEvents(List<Event> batch) {
+		BatchReport report = new BatchReport(batch);
+		if (batch.isEmpty()) {
+			return report;
+		}
+		long stamp = readLock(firstDay(batch), lastDay(batch));
+		try {
+			checkEvents(batch, report);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		return report;
+	}
+	
+	/**
+	 * Finds every conflict of a batch with one sweep over each day it touches; called with
+	 * a lock held and every day the batch touches already loaded. The day's stored events and repeating occurrences are already in
+	 * starting-time order and the batch is sorted into it, so one pass finds both kinds of
+	 * overlap. An event overlaps the calendar when an event starting no later than it is
+	 * still running, or the next event starting after it begins before it ends. It overlaps
+	 * the batch when an earlier accepted event of the batch is still running.
+	 * An event running past midnight is swept on the day it starts; the days after are
+	 * checked on their own, and later events of the batch are checked against it through
+	 * a tree of the accepted ones.
+	 * 
+	 * @param batch Proposed events
+	 * @param report Receives the rejections
+	 * @return accepted events in day and time order
+	 */
+	private List<Event> checkEvents(final List<Event> batch, BatchReport report) {
+		Integer[] order = new Integer[batch.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return Event.DAY_ORDER.compare(batch.get(i1), batch.get(i2));
+			}
+		});
+		ArrayList<Event> accepted = new ArrayList<Event>(order.length);
+		ArrayList<Event> existing = new ArrayList<Event>();
+		ArrayList<Recurrence> owners = new ArrayList<Recurrence>();
+		IntervalTree acceptedSpans = new IntervalTree();
+		for (int i = 0; i < order.length;) {
+			int day = batch.get(order[i]).getDay();
+			existing.clear();
+			owners.clear();
+			dayAgenda(day, existing, owners);
+			int next = 0;
+			Event running = null;
+			Event batchRunning = null;
+			int batchEnd = Integer.MIN_VALUE;
+			for (; i < order.length && batch.get(order[i]).getDay() == day; i++) {
+				Event e = batch.get(order[i]);
+				int start = e.getStartMinute();
+				int end = Math.max(e.getEndMinuteOn(day), start + 1);
+				// Take in every existing event starting no later than this one, keeping the latest end
+				for (; next < existing.size() && existing.get(next).getStartMinuteOn(day) <= start; next++) {
+					if (running == null || existing.get(next).getEndMinuteOn(day) > running.getEndMinuteOn(day)) {
+						running = existing.get(next);
+					}
+				}
+				Event other;
+				if (running != null && running.getEndMinuteOn(day) > start) {
+					report.reject(order[i], BatchReport.Status.CONFLICTS_WITH_CALENDAR, running);
+				} else if (next < existing.size() && existing.get(next).getStartMinuteOn(day) < end) {
+					report.reject(order[i], BatchReport.Status.CONFLICTS_WITH_CALENDAR, existing.get(next));
+				} else if (e.isSpanning() && (other = conflictAfterFirstDay(day, e.getEndDay(), e.getEndMinute())) != null) {
+					report.reject(order[i], BatchReport.Status.CONFLICTS_WITH_CALENDAR, other);
+				} else if (batchEnd > start) {
+					report.reject(order[i], BatchReport.Status.CONFLICTS_WITH_BATCH, batchRunning);
+				} else if ((other = acceptedSpans.firstOverlapping(e.getStartInstant(), Math.max(e.getEndInstant(), e.getStartInstant() + 1))) != null) {
+					report.reject(order[i], BatchReport.Status.CONFLICTS_WITH_BATCH, other);
+				} else {
+					accepted.add(e);
+					batchRunning = e;
+					batchEnd = end;
+					if (e.isSpanning()) {
+						acceptedSpans.add(e);
+					}
+				}
+			}
+		}
+		return accepted;
+	}
+	
+	/**
+	 * Checks whether a repeating event's occurrences in its first RULE_CHECK_DAYS days
+	 * overlap the calendar; called with the write lock held
+	 * @param r Repeating event
+	 * @return True if an occurrence overlaps an event
+	 */
+	private boolean ruleConflicts(Recurrence r) {
+		int last = (int) Math.min(r.getUntilDay(), r.getStartDay() + (long) RULE_CHECK_DAYS - 1);
+		eventIndex.load(r.getStartDay(), last);
+		int start = r.getTemplate().getStartMinute();
+		int end = r.getTemplate().getEndMinute();
+		for (int day = r.nextOccurrence(r.getStartDay()); day <= last; day = r.nextOccurrence(day + 1)) {
+			if (conflicts(day, start, end)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds an event overlapping the days after the first of a time range running past
+	 * midnight; called with a lock held
+	 * @param day Epoch day the range starts on
+	 * @param endDay Epoch day the range ends on
+	 * @param endMinute Ending minute on that day, exclusive
+	 * @return an overlapping event, or null if there is none
+	 */
+	private Event conflictAfterFirstDay(int day, int endDay, int endMinute) {
+		ArrayList<Event> events = new ArrayList<Event>();
+		ArrayList<Recurrence> owners = new ArrayList<Recurrence>();
+		for (day++; day <= endDay; day++) {
+			events.clear();
+			owners.clear();
+			dayAgenda(day, events, owners);
+			int end = Math.max(day < endDay ? 1440 : endMinute, 1);
+			for (Event other : events) {
+				if (other.getStartMinuteOn(day) < end && other.getEndMinuteOn(day) > 0) {
+					return other;
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Creating a repeating event starting on the selected date.
+	 * The rule is stored once; occurrences are worked out when a day is looked at.
+	 * 
+	 * @param title Title of the event
+	 * @param startTime Starting time of the event
+	 * @param endTime Ending time of the event
+	 * @param frequency How often the event repeats
+	 * @param interval Number of periods between occurrences
+	 * @param untilDay Last epoch day an occurrence may fall on, or Recurrence.FOREVER
+	 * @param count Maximum number of occurrences, or 0 for no limit
+	 */
+	public void createRecurringEvent(String title, String startTime, String endTime,
+			Recurrence.Frequency frequency, int interval, int untilDay, int count) {
+		createRecurringEvent(getSelectedDay(), title, startTime, endTime, frequency, interval, untilDay, count, new int[0]);
+	}
+	
+	/**
+	 * Creating a repeating event starting on any day
+	 * 
+	 * @param day Epoch day of the first occurrence
+	 * @param title Title of the event
+	 * @param startTime Starting time of the event
+	 * @param endTime Ending time of the event
+	 * @param frequency How often the event repeats
+	 * @param interval Number of periods between occurrences
+	 * @param untilDay Last epoch day an occurrence may fall on, or Recurrence.FOREVER
+	 * @param count Maximum number of occurrences, or 0 for no limit
+	 * @param exceptions Epoch days whose occurrence is cancelled
+	 */
+	public void createRecurringEvent(int day, String title, String startTime, String endTime,
+			Recurrence.Frequency frequency, int interval, int untilDay, int count, int[] exceptions) {
+		awaitLoaded();
+		Event template = new Event(title, DateKey.format(day), startTime, endTime);
+		long stamp = lock.writeLock();
+		try {
+			Recurrence r = new Recurrence(eventIndex.nextRecurrenceId(), frequency, interval, day, untilDay, count, exceptions, template);
+			EditHistory.Edit edit = new EditHistory.Edit();
+			putRecurrence(r, edit);
+			history.record(edit);
+			untilDay = r.getUntilDay();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(CalendarChange.EVENTS, day, untilDay);
+	}
+	
+	/**
+	 * Stores a new or changed recurrence rule and journals it; called with the write lock held
+	 * @param r Recurrence rule
+	 * @param edit Receives the rule it replaces
+	 */
+	private void putRecurrence(Recurrence r, EditHistory.Edit edit) {
+		Recurrence old = eventIndex.getRecurrence(r.getId());
+		edit.replaced(old, r);
+		eventIndex.putRecurrence(r);
+		remindRule(old, r);
+		try {
+			journal.logRecurrence(r);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+		compactIfNeeded();
+	}
+	
+	/**
+	 * Collects a day's stored events, repeating occurrences and events running past midnight
+	 * in order of their starting time on the day; one that began the day before comes first
+	 * @param day Epoch day
+	 * @param events Receives the events
+	 * @param owners Receives the rule of each occurrence, or null for a stored event
+	 */
+	private void dayAgenda(int day, ArrayList<Event> events, ArrayList<Recurrence> owners) {
+		DayEvents dayEvents = eventIndex.get(day);
+		if (dayEvents != null) {
+			for (Event e : dayEvents) {
+				events.add(e);
+				owners.add(null);
+			}
+		}
+		for (Recurrence r : eventIndex.getRecurrences()) {
+			if (r.occursOn(day)) {
+				Event occurrence = r.occurrence(day);
+				int pos = events.size();
+				while (pos > 0 && events.get(pos - 1).getStartMinute() > occurrence.getStartMinute()) {
+					pos--;
+				}
+				events.add(pos, occurrence);
+				owners.add(pos, r);
+			}
+		}
+		ArrayList<Event> spans = new ArrayList<Event>();
+		eventIndex.getSpans().overlapping(day * 1440L, day * 1440L + 1440, spans);
+		for (Event span : spans) {
+			int pos = events.size();
+			while (pos > 0 && events.get(pos - 1).getStartMinuteOn(day) > span.getStartMinuteOn(day)) {
+				pos--;
+			}
+			events.add(pos, span);
+			owners.add(pos, null);
+		}
+	}
+	
+	/**
+	 * Converts the 24:00 time to minutes
+	 * @param time Time in the 24:00 format
+	 * @return time converted to minutes
+	 */
+	public int convertHourToMin(String time) {
+		return Event.toMinutes(time);
+	}
+	
+	/**
+	 * Comparator to compare the starting times
+	 * @return comparator
+	 */
+	public static Comparator<Event> timeComparator() {
+		return new Comparator<Event>() {
+			public int compare(Event event1, Event event2) {
+				return Integer.compare(event1.getStartMinute(), event2.getStartMinute());
+			}
+		};
+	}
+	
+	/**
+	 * This will check to see if there are any event time conflicts on the selected date.
+	 * The day is kept sorted, so this is a binary search for the neighbouring events.
+	 * @param timeStart Starting time of the event
+	 * @param timeEnd Ending time of the event
+	 * @return True if the time overlaps an existing event
+	 */
+	public Boolean hasEventConflict(String timeStart, String timeEnd) {
+		return hasEventConflict(getSelectedDay(), convertHourToMin(timeStart), convertHourToMin(timeEnd));
+	}
+	
+	/**
+	 * This will check to see if a time range on any day overlaps an existing event
+	 * @param day Epoch day
+	 * @param start Starting minute, inclusive
+	 * @param end Ending minute, exclusive
+	 * @return True if the time overlaps an existing event
+	 */
+	public boolean hasEventConflict(int day, int start, int end) {
+		long started = metrics.start();
+		long stamp = readLock(day, day);
+		try {
+			return conflicts(day, start, end);
+		} finally {
+			lock.unlockRead(stamp);
+			metrics.conflictCheck.record(started);
+		}
+	}	
+	
+	/**
+	 * Checks whether a time range on a day overlaps an event; called with a lock held and
+	 * the day loaded
+	 * @param day Epoch day
+	 * @param start Starting minute, inclusive
+	 * @param end Ending minute, exclusive
+	 * @return True if the time overlaps an existing event
+	 */
+	private boolean conflicts(int day, int start, int end) {
+		DayEvents dayEvents = eventIndex.get(day);
+		if (dayEvents != null && dayEvents.overlaps(start, end)) {
+			return true;
+		}
+		if (eventIndex.getSpans().firstOverlapping(day * 1440L + start, day * 1440L + Math.max(end, start + 1)) != null) {
+			return true;
+		}
+		for (Recurrence r : eventIndex.getRecurrences()) {
+			if (r.overlaps(start, end) && r.occursOn(day)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * This will check to see if a time range running past midnight overlaps an existing event
+	 * @param day Epoch day the range starts on
+	 * @param start Starting minute on that day, inclusive
+	 * @param endDay Epoch day the range ends on
+	 * @param end Ending minute on that day, exclusive
+	 * @return True if the time overlaps an existing event
+	 */
+	public boolean hasEventConflict(int day, int start, int endDay, int end) {
+		if (endDay <= day) {
+			return hasEventConflict(day, start, end);
+		}
+		long started = metrics.start();
+		long stamp = readLock(day, endDay);
+		try {
+			ArrayList<Event> events = new ArrayList<Event>();
+			dayAgenda(day, events, new ArrayList<Recurrence>());
+			for (Event other : events) {
+				// Everything on the first day starts before the range ends at midnight
+				if (other.getEndMinuteOn(day) > start) {
+					return true;
+				}
+			}
+			return conflictAfterFirstDay(day, endDay, end) != null;
+		} finally {
+			lock.unlockRead(stamp);
+			metrics.conflictCheck.record(started);
+		}
+	}
+	
+	/**
+	 * Finds the first free stretches of time of at least a given length between two days.
+	 * Each day is swept once over its events in starting-time order, which are already
+	 * sorted in the index, merged with the occurrences of repeating events; the gaps
+	 * between the merged busy times are the free slots. An event without an ending time
+	 * splits the free time but takes none of it, the same as for hasEventConflict.
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @param minutes Shortest slot wanted
+	 * @param dayStart Start of the working day, in minutes since midnight
+	 * @param dayEnd End of the working day, in minutes since midnight
+	 * @param limit Most slots to return
+	 * @return free slots in time order
+	 */
+	public List<FreeSlot> findFreeSlots(int fromDay, int toDay, int minutes, int dayStart, int dayEnd, int limit) {
+		ArrayList<FreeSlot> slots = new ArrayList<FreeSlot>();
+		if (limit <= 0 || dayEnd - dayStart < minutes || fromDay > toDay) {
+			return slots;
+		}
+		long stamp = readLock(fromDay, toDay);
+		try {
+			// Occurrences of repeating events in the range, ordered by day and start
+			ArrayList<Event> occurrences = new ArrayList<Event>();
+			for (Recurrence r : eventIndex.getRecurrences()) {
+				for (int d = r.nextOccurrence(fromDay); d <= toDay; d = r.nextOccurrence(d + 1)) {
+					occurrences.add(r.occurrence(d));
+				}
+			}
+			Collections.sort(occurrences, Event.DAY_ORDER);
+			int o = 0;
+			int s = eventIndex.ceilingSlot(fromDay);
+			for (int day = fromDay; day <= toDay && slots.size() < limit; day++) {
+				DayEvents dayEvents = null;
+				if (s < eventIndex.size() && eventIndex.dayAt(s) == day) {
+					dayEvents = eventIndex.eventsAt(s++);
+				}
+				if (spansDay(day)) {
+					// An event running past midnight covers part of the day; sweep the whole agenda instead
+					freeSlotsOn(day, minutes, dayStart, dayEnd, limit, slots);
+				} else {
+					int stored = 0, storedSize = dayEvents == null ? 0 : dayEvents.size();
+					int free = dayStart;
+					while (free < dayEnd && slots.size() < limit) {
+						// Next busy interval: the earlier of the next stored event and the next occurrence
+						Event next = null;
+						boolean fromStored = stored < storedSize;
+						if (o < occurrences.size() && occurrences.get(o).getDay() == day
+								&& (!fromStored || occurrences.get(o).getStartMinute() < dayEvents.get(stored).getStartMinute())) {
+							next = occurrences.get(o++);
+						} else if (fromStored) {
+							next = dayEvents.get(stored++);
+						}
+						int busyStart = next == null ? dayEnd : Math.min(next.getStartMinute(), dayEnd);
+						if (busyStart - free >= minutes) {
+							slots.add(new FreeSlot(day, free, busyStart));
+						}
+						if (next == null) {
+							break;
+						}
+						free = Math.max(free, next.getEndMinute());
+					}
+				}
+				while (o < occurrences.size() && occurrences.get(o).getDay() <= day) {
+					o++;
+				}
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		return slots;
+	}
+	
+	/**
+	 * Adds the free slots of one day, sweeping its whole agenda; called with a lock held
+	 */
+	private void freeSlotsOn(int day, int minutes, int dayStart, int dayEnd, int limit, List<FreeSlot> slots) {
+		ArrayList<Event> events = new ArrayList<Event>();
+		dayAgenda(day, events, new ArrayList<Recurrence>());
+		int free = dayStart;
+		for (int i = 0; i <= events.size() && free < dayEnd && slots.size() < limit; i++) {
+			int busyStart = i == events.size() ? dayEnd : Math.min(events.get(i).getStartMinuteOn(day), dayEnd);
+			if (busyStart - free >= minutes) {
+				slots.add(new FreeSlot(day, free, busyStart));
+			}
+			if (i < events.size()) {
+				free = Math.max(free, events.get(i).getEndMinuteOn(day));
+			}
+		}
+	}
+	
+	/**
+	 * String representation of all the events scheduled on the selected date
+	 * @param date Date to get all the events
+	 * @return String representation of all events scheduled on the date
+	 */
+	public String getEvents(String date) {
+		return getEvents(DateKey.parse(date));
+	}
+	
+	/**
+	 * String representation of all the events scheduled on a day.
+	 * The text is cached by the day and rebuilt only after its events change.
+	 * @param day Epoch day
+	 * @return String representation of all events scheduled on the day
+	 */
+	public String getEvents(int day) {
+		long started = metrics.start();
+		long stamp = readLock(day, day);
+		try {
+			if (recursOn(day) || spansDay(day)) {
+				ArrayList<Event> events = new ArrayList<>();
+				dayAgenda(day, events, new ArrayList<Recurrence>());
+				StringBuilder builder = new StringBuilder();
+				for (int i = 0; i < events.size(); i++) {
+					builder.append(i + 1).append("   ").append(events.get(i)).append('\n');
+				}
+				return builder.toString();
+			}
+			DayEvents dayEvents = eventIndex.get(day);
+			if (dayEvents == null) {
+				return "";
+			}
+			return dayEvents.getAgenda();
+		} finally {
+			lock.unlockRead(stamp);
+			metrics.dayQuery.record(started);
+		}
+	}
+	
+	/**
+	 * Has a reminder scheduler follow the model's changes, replacing any that did
+	 * @param s Scheduler, or null to stop
+	 */
+	void setReminders(ReminderScheduler s) {
+		reminders = s;
+	}
+	
+	/**
+	 * Hands a reminder scheduler the stored events starting within a range of days, under
+	 * the read lock so no change slips in between
+	 * @param s Scheduler
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return True if stored events may start after the range
+	 */
+	boolean remindStored(ReminderScheduler s, int fromDay, int toDay) {
+		ArrayList<Event> events = new ArrayList<Event>();
+		long stamp = readLock(fromDay, toDay);
+		try {
+			for (int slot = eventIndex.ceilingSlot(fromDay); slot < eventIndex.size() && eventIndex.dayAt(slot) <= toDay; slot++) {
+				for (Event e : eventIndex.eventsAt(slot)) {
+					events.add(e);
+				}
+			}
+			boolean more = eventIndex.lastDay() > toDay;
+			// Events running past midnight are all in memory; the last range takes the rest
+			eventIndex.getSpans().startingBetween(fromDay * 1440L, more ? (toDay + 1L) * 1440L : Long.MAX_VALUE, events);
+			s.schedule(events);
+			return more;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Hands a reminder scheduler the occurrences of repeating events within a range of days
+	 * @param s Scheduler
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 */
+	void remindOccurrences(ReminderScheduler s, int fromDay, int toDay) {
+		long stamp = lock.readLock();
+		try {
+			s.scheduleOccurrences(eventIndex.getRecurrences(), fromDay, toDay);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Adds the reminder of a new event; called with the write lock held
+	 * @param e Event
+	 */
+	private void remind(Event e) {
+		ReminderScheduler s = reminders;
+		if (s != null) {
+			s.schedule(e);
+		}
+	}
+	
+	/**
+	 * Cancels the reminder of a deleted event; called with the write lock held
+	 * @param e Event
+	 */
+	private void forget(Event e) {
+		ReminderScheduler s = reminders;
+		if (s != null) {
+			s.cancel(e);
+		}
+	}
+	
+	/**
+	 * Replaces the reminders of a changed repeating event; called with the write lock held
+	 * @param old Rule before the change, or null if it is new
+	 * @param r Rule after the change, or null if it was removed
+	 */
+	private void remindRule(Recurrence old, Recurrence r) {
+		ReminderScheduler s = reminders;
+		if (s != null) {
+			s.scheduleRule(old, r);
+		}
+	}
+	
+	/**
+	 * Saves all events by folding the journal into a new generation of "events.snapshot".
+	 * Every change is already in "events.journal", so this only speeds up the next load.
+	 * The write lock is held just long enough to take a snapshot of the index; the file is
+	 * written without it, so the calendar stays usable while saving.
+	 */
+	public void save() {
+		awaitLoaded();
+		long started = metrics.start();
+		synchronized (saveLock) {
+			EventIndex snapshot;
+			int ended;
+			long stamp = lock.writeLock();
+			try {
+				if (!journal.hasRecords()) {
+					return;
+				}
+				snapshot = eventIndex.snapshot();
+				ended = journal.rotate();
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				return;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+			File written;
+			try {
+				written = journal.writeSnapshot(snapshot, ended);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				return;
+			}
+			// Move the index over to the new file so the old one can be deleted
+			stamp = lock.writeLock();
+			try {
+				eventIndex.reopen(written);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		metrics.save.record(started);
+	}
+	
+	/**
+	 * Saves on the background thread after a while, replacing any save already waiting,
+	 * so a run of changes is saved once
+	 * @param delayMillis Delay before saving
+	 */
+	private void scheduleSave(long delayMillis) {
+		synchronized (saver) {
+			if (pendingSave != null) {
+				pendingSave.cancel(false);
+			}
+			try {
+				pendingSave = saver.schedule(new Runnable() {
+					public void run() {
+						save();
+					}
+				}, delayMillis, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException ex) {
+				// Closed; the final save has already been done or is under way
+			}
+		}
+	}
+	
+	/**
+	 * Saves, stops the background saves and closes the journal.
+	 * The model is only used through queries after this. If loading failed nothing is
+	 * saved, so the files are left as they were.
+	 */
+	public void close() {
+		closed = true;
+		ReminderScheduler s = reminders;
+		if (s != null) {
+			s.stop();
+		}
+		awaitLoadedQuietly();
+		saver.shutdown();
+		try {
+			Runtime.getRuntime().removeShutdownHook(saveOnExit);
+		} catch (IllegalStateException ex) {
+			// Already shutting down; the hook is doing this
+		}
+		if (loadFailure == null) {
+			save();
+		}
+		metrics.unregister();
+		long stamp = lock.writeLock();
+		try {
+			journal.close();
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Maps "events.snapshot" and replays "events.journal" on top.
+	 * Months of the snapshot are only read in when something asks for one of their days.
+	 * Falls back to the serialized "events.txt" written by older versions.
+	 */
+	private void load(EventIndex index) {
+		long started = metrics.start();
+		try {
+			if (!journal.load(index) && new File(directory, "events.txt").exists()) {
+				loadLegacy(index);
+				journal.compact(index);
+			}
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+		metrics.load.record(started);
+	}
+
+	/**
+	 * Loads in stages on the background thread. The snapshot is mapped and the journal
+	 * replayed into an index nobody else sees yet; once the current month is read in, that
+	 * index replaces the empty one and changes may begin. The rest of history then streams
+	 * in a month at a time, nearest the current month first, each under a short write lock.
+	 */
+	private void loadStaged() {
+		EventIndex index = new EventIndex();
+		MonthLayout month = current;
+		int first = month.getFirstDay();
+		try {
+			load(index);
+			index.load(first, first + month.getLength() - 1);
+			long stamp = lock.writeLock();
+			try {
+				eventIndex = index;
+				if (journal.hasRecords()) {
+					scheduleSave(AUTOSAVE_DELAY_MILLIS);
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		} catch (RuntimeException ex) {
+			// Such as a corrupt snapshot; changes must not go on over an empty index
+			loadFailure = ex;
+			ex.printStackTrace();
+		} finally {
+			loaded.countDown();
+		}
+		// Listeners check isLoaded() and getLoadFailure() to know which way it went
+		fireChange(CalendarChange.EVENTS, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		if (loadFailure != null) {
+			return;
+		}
+		
+		int[] range = getEventDayRange();
+		LocalDate center = LocalDate.ofEpochDay(first);
+		for (int k = 1; !closed; k++) {
+			boolean inRange = false;
+			for (int direction = 1; direction >= -1; direction -= 2) {
+				LocalDate date = center.plusMonths(direction * k);
+				int monthStart = (int) date.toEpochDay();
+				int monthEnd = monthStart + date.lengthOfMonth() - 1;
+				if (monthEnd < range[0] || monthStart > range[1]) {
+					continue;
+				}
+				inRange = true;
+				if (loadMonth(monthStart, monthEnd)) {
+					fireChange(CalendarChange.EVENTS, monthStart, monthEnd);
+				}
+			}
+			if (!inRange) {
+				break;
+			}
+		}
+		historyLoaded = true;
+	}
+	
+	/**
+	 * Reads a month of the snapshot in unless it already is
+	 * @return True if anything was read
+	 */
+	private boolean loadMonth(int monthStart, int monthEnd) {
+		long stamp = lock.writeLock();
+		try {
+			if (closed || eventIndex.isLoaded(monthStart, monthEnd)) {
+				return false;
+			}
+			eventIndex.load(monthStart, monthEnd);
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Waits until the current month is loaded, so a change lands on the real index
+	 * @throws IllegalStateException if loading in the background failed
+	 */
+	private void awaitLoaded() {
+		awaitLoadedQuietly();
+		if (loadFailure != null) {
+			throw new IllegalStateException("Events could not be loaded", loadFailure);
+		}
+	}
+	
+	/**
+	 * Waits until loading has finished, whether or not it succeeded
+	 */
+	private void awaitLoadedQuietly() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				loaded.await();
+				break;
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Checks whether the current month has been loaded; always true unless loading in the background
+	 * @return True once queries see the stored events; false for good if loading failed
+	 */
+	public boolean isLoaded() {
+		return loaded.getCount() == 0 && loadFailure == null;
+	}
+	
+	/**
+	 * Gets what stopped the events from loading in the background
+	 * @return the failure, or null if loading has not failed
+	 */
+	public RuntimeException getLoadFailure() {
+		return loadFailure;
+	}
+	
+	/**
+	 * Checks whether every month of history has been read in
+	 * @return True once background loading has finished
+	 */
+	public boolean isHistoryLoaded() {
+		return historyLoaded;
+	}
+
+	/**
+	 * Loads all events from the serialized "events.txt".
+	 */
+	private void loadLegacy(EventIndex index) {
+		try {
+			FileInputStream fIn = new FileInputStream(new File(directory, "events.txt"));
+			ObjectInputStream oIn = new ObjectInputStream(fIn);
+			Object saved = oIn.readObject();
+			// Older versions saved a map keyed by "M/D/YYYY"
+			HashMap<String, ArrayList<Event>> temp = (HashMap<String, ArrayList<Event>>) saved;
+			for (ArrayList<Event> listOfEvent : temp.values()) {
+				for (Event e : listOfEvent) {
+					index.add(DateKey.parse(e.getDate()), e);
+				}
+			}
+			oIn.close();
+			fIn.close();
+		} catch (IOException ioe) {
+		} catch (ClassNotFoundException c) {
+			System.out.println("Class not found");
+			c.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Schedules a save after a change was journaled, right away once the journal has
+	 * outgrown the snapshot; called with the write lock held
+	 */
+	private void compactIfNeeded() {
+		scheduleSave(journal.needsCompaction(eventIndex.eventCount()) ? 0 : AUTOSAVE_DELAY_MILLIS);
+	}
+	
+	/**
+	 * Deletes an event from the array
+	 */
+	public void deleteEvent() {
+		deleteEvents(getSelectedDay());
+	}
+	
+	/**
+	 * Deletes every event of a day, cancelling that day's repeating occurrences.
+	 * An event running past midnight that covers part of the day is deleted as a whole.
+	 * @param day Epoch day
+	 * @return number of events deleted
+	 */
+	public int deleteEvents(int day) {
+		awaitLoaded();
+		int deleted = 0;
+		EditHistory.Edit edit = new EditHistory.Edit();
+		long stamp = lock.writeLock();
+		try {
+			DayEvents removed = eventIndex.remove(day);
+			if (removed != null) {
+				deleted = removed.size();
+				for (Event e : removed) {
+					edit.removed(e);
+					forget(e);
+				}
+				try {
+					journal.logDeleteDay(day);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+				compactIfNeeded();
+			}
+			for (Recurrence r : new ArrayList<Recurrence>(eventIndex.getRecurrences())) {
+				if (r.occursOn(day)) {
+					putRecurrence(r.withException(day), edit);
+					deleted++;
+				}
+			}
+			ArrayList<Event> spans = new ArrayList<Event>();
+			eventIndex.getSpans().overlapping(day * 1440L, day * 1440L + 1440, spans);
+			for (Event e : spans) {
+				removeStored(e);
+				edit.removed(e);
+				deleted++;
+			}
+			history.record(edit);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(CalendarChange.EVENTS, Math.min(day, edit.getFromDay()), Math.max(day, edit.getToDay()));
+		return deleted;
+	}
+	
+	/**
+	 * Deletes an specific event from the array
+	 */
+	public void deleteSpecificEvent(String eventNum) {
+		deleteEvent(getSelectedDay(), Integer.parseInt(eventNum));
+	}
+	
+	/**
+	 * Deletes one event of a day, numbered as in the day's agenda
+	 * @param day Epoch day
+	 * @param num Position of the event among the day's events in starting-time order
+	 * @return True if there was such an event
+	 */
+	public boolean deleteEvent(int day, int num) {
+		awaitLoaded();
+		int fromDay = day, toDay = day;
+		long stamp = lock.writeLock();
+		try {
+			eventIndex.load(day, day);
+			ArrayList<Event> events = new ArrayList<>();
+			ArrayList<Recurrence> owners = new ArrayList<>();
+			dayAgenda(day, events, owners);
+			if (num < 0 || num >= events.size()) {
+				return false;
+			}
+			if (owners.get(num) != null) {
+				// An occurrence of a repeating event; cancel just this day
+				EditHistory.Edit edit = new EditHistory.Edit();
+				putRecurrence(owners.get(num).withException(day), edit);
+				history.record(edit);
+			} else if (events.get(num).isSpanning()) {
+				removeStored(events.get(num));
+				EditHistory.Edit edit = new EditHistory.Edit();
+				edit.removed(events.get(num));
+				history.record(edit);
+				compactIfNeeded();
+				fromDay = events.get(num).getDay();
+				toDay = events.get(num).getEndDay();
+			} else {
+				int stored = 0;
+				for (int i = 0; i < num; i++) {
+					if (owners.get(i) == null && !events.get(i).isSpanning()) {
+						stored++;
+					}
+				}
+				Event removed = eventIndex.removeAt(day, stored);
+				forget(removed);
+				try {
+					journal.logDeleteEvent(day, removed);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+				EditHistory.Edit edit = new EditHistory.Edit();
+				edit.removed(removed);
+				history.record(edit);
+				compactIfNeeded();
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(CalendarChange.EVENTS, fromDay, toDay);
+		return true;
+	}
+
+	/**
+	 * Undoes the latest change that has not been undone
+	 * @return True if there was a change to undo
+	 */
+	public boolean undo() {
+		return applyEdit(false);
+	}
+	
+	/**
+	 * Redoes the latest undone change, unless something was changed since
+	 * @return True if there was a change to redo
+	 */
+	public boolean redo() {
+		return applyEdit(true);
+	}
+	
+	/**
+	 * Checks whether there is a change to undo
+	 * @return True if undo() would do something
+	 */
+	public boolean canUndo() {
+		long stamp = lock.readLock();
+		try {
+			return history.canUndo();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Checks whether there is an undone change to redo
+	 * @return True if redo() would do something
+	 */
+	public boolean canRedo() {
+		long stamp = lock.readLock();
+		try {
+			return history.canRedo();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Applies a change from the history, journaling it like any other change
+	 * @param forward True to redo, false to undo
+	 */
+	private boolean applyEdit(boolean forward) {
+		awaitLoaded();
+		EditHistory.Edit edit;
+		long stamp = lock.writeLock();
+		try {
+			edit = forward ? history.redo() : history.undo();
+			if (edit == null) {
+				return false;
+			}
+			for (Event e : edit.toRemove(forward)) {
+				removeStored(e);
+			}
+			List<Event> added = edit.toAdd(forward);
+			if (!added.isEmpty()) {
+				eventIndex.load(added.get(0).getDay(), lastDay(added));
+				store(added);
+				try {
+					journal.logCreates(added);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+			}
+			List<Recurrence> rules = edit.toPut(forward);
+			int[] ids = edit.toPutIds(forward);
+			for (int i = 0; i < ids.length; i++) {
+				try {
+					if (rules.get(i) != null) {
+						remindRule(eventIndex.getRecurrence(ids[i]), rules.get(i));
+						eventIndex.putRecurrence(rules.get(i));
+						journal.logRecurrence(rules.get(i));
+					} else {
+						Recurrence removed = eventIndex.removeRecurrence(ids[i]);
+						if (removed != null) {
+							remindRule(removed, null);
+							journal.logDeleteRecurrence(removed);
+						}
+					}
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+			}
+			compactIfNeeded();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		fireChange(CalendarChange.EVENTS, edit.getFromDay(), edit.getToDay());
+		return true;
+	}
+	
+	/**
+	 * Removes a stored event and journals it; called with the write lock held
+	 * @param e Event, matched by identity and failing that by its text
+	 */
+	private void removeStored(Event e) {
+		int day = e.getDay();
+		if (e.isSpanning()) {
+			if (eventIndex.removeSpan(e)) {
+				forget(e);
+				try {
+					journal.logDeleteEvent(day, e);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+			}
+			return;
+		}
+		DayEvents dayEvents = eventIndex.get(day);
+		if (dayEvents == null) {
+			return;
+		}
+		int match = -1;
+		for (int i = 0; i < dayEvents.size() && match < 0; i++) {
+			if (dayEvents.get(i) == e) {
+				match = i;
+			}
+		}
+		for (int i = 0; i < dayEvents.size() && match < 0; i++) {
+			if (dayEvents.get(i).toString().equals(e.toString())) {
+				match = i;
+			}
+		}
+		if (match >= 0) {
+			forget(eventIndex.removeAt(day, match));
+			try {
+				journal.logDeleteEvent(day, e);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		}
+	}
+
+}
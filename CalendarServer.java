@@ -0,0 +1,381 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a CalendarModel over HTTP on the loopback address, with no window.
+ *
+ * Every request is handled on its own virtual thread when the JVM has them, and on a fixed
+ * pool of platform threads otherwise. Parameters come from the query string or from a form
+ * encoded body; dates are M/D/YYYY and times HH:MM. Replies are JSON.
+ *
+ *   GET    /events?from=&to=                 events in a range of days
+ *   POST   /events?date=&title=&start=&end=[&endDate=]  creates an event unless it conflicts (409);
+ *                                            endDate lets it run past midnight
+ *   DELETE /events?date=[&index=]            deletes one event of a day, numbered from 1 as in
+ *                                            the day's agenda, or all of them
+ *   GET    /conflict?date=&start=&end=       whether a time overlaps an event
+ *   GET    /free?from=&to=&minutes=[&start=&end=&limit=]  free slots
+ *   GET    /search?q=[&limit=]               events whose title matches
+ *
+ * A limit defaults to DEFAULT_LIMIT and is capped at MAX_LIMIT. Creating an event answers
+ * 201; every other success answers 200.
+ *
+ * Run with: java CalendarServer [port] [directory], or SimpleCalendar --server [port] [directory]
+ */
+public class CalendarServer {
+
+	private static final int DEFAULT_PORT = 8080;
+	private static final int BACKLOG = 4096;
+	private static final int FALLBACK_THREADS = 64;
+	private static final int DEFAULT_LIMIT = 100;
+	private static final int MAX_LIMIT = 1000;
+
+	static {
+		// The JDK server writes headers and body separately; without this, Nagle's algorithm
+		// holds the body back until the client's delayed ACK, about 40 ms per request
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final CalendarModel model;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor for the CalendarServer; call start() to begin serving
+	 * @param model Calendar to serve
+	 * @param port Loopback port, or 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public CalendarServer(CalendarModel model, int port) throws IOException {
+		this.model = model;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+		server.createContext("/events", new Handler() {
+			String handle(String method, Map<String, String> params) {
+				if (method.equals("GET")) {
+					return events(params);
+				} else if (method.equals("POST")) {
+					return create(params);
+				} else if (method.equals("DELETE")) {
+					return delete(params);
+				}
+				throw new RequestException(405, "Use GET, POST or DELETE");
+			}
+
+			int status(String method) {
+				return method.equals("POST") ? 201 : 200;
+			}
+		});
+		server.createContext("/conflict", new Handler() {
+			String handle(String method, Map<String, String> params) {
+				return "{\"conflict\":" + model.hasEventConflict(day(params, "date"), minute(params, "start"), minute(params, "end")) + "}";
+			}
+		});
+		server.createContext("/free", new Handler() {
+			String handle(String method, Map<String, String> params) {
+				return free(params);
+			}
+		});
+		server.createContext("/search", new Handler() {
+			String handle(String method, Map<String, String> params) {
+				return toJson(model.searchEvents(required(params, "q"), limit(params)));
+			}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		CalendarModel model = args.length > 1 ? new CalendarModel(new File(args[1])) : new CalendarModel();
+		CalendarServer server = new CalendarServer(model, port);
+		server.start();
+		System.out.println("Serving the calendar on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/");
+	}
+
+	/**
+	 * Starts serving on a background thread
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops serving, waiting up to a second for requests in progress; the model stays open
+	 */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	/**
+	 * Gets the port being served, useful when the server was created on port 0
+	 * @return port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Makes an executor running each task on a new virtual thread where the JVM has them
+	 * (Java 21 and later), and on a fixed pool of daemon platform threads otherwise.
+	 * Looked up reflectively so the code still compiles and runs on older JVMs.
+	 * @return executor
+	 */
+	public static ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			final AtomicInteger count = new AtomicInteger();
+			return Executors.newFixedThreadPool(FALLBACK_THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "calendar-http-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	private String events(Map<String, String> params) {
+		int from = day(params, "from");
+		int to = params.containsKey("to") ? day(params, "to") : from;
+		if (to < from) {
+			throw new RequestException(400, "to is before from");
+		}
+		return toJson(model.getEventsBetween(from, to));
+	}
+
+	private String create(Map<String, String> params) {
+		int day = day(params, "date");
+		String start = required(params, "start");
+		String end = params.containsKey("end") ? params.get("end") : "";
+		String endDate = params.containsKey("endDate") && !params.get("endDate").isEmpty() ? DateKey.format(day(params, "endDate")) : null;
+		Event e;
+		try {
+			e = new Event(required(params, "title"), DateKey.format(day), start, endDate, end);
+		} catch (IllegalArgumentException ex) {
+			throw new RequestException(400, ex.getMessage());
+		}
+		if (!e.isSpanning() && e.getEndMinute() < e.getStartMinute()) {
+			throw new RequestException(400, "end is before start");
+		}
+		if (model.createEvents(Collections.singletonList(e)) == 0) {
+			throw new RequestException(409, "Conflicts with another event");
+		}
+		return "{\"created\":" + eventJson(e) + "}";
+	}
+
+	private String delete(Map<String, String> params) {
+		int day = day(params, "date");
+		if (params.containsKey("index")) {
+			// Numbered from 1, as the agenda shows them
+			int index = number(params, "index", 0);
+			if (!model.deleteEvent(day, index - 1)) {
+				throw new RequestException(404, "No event " + index + " on " + DateKey.format(day) + "; events are numbered from 1");
+			}
+			return "{\"deleted\":1}";
+		}
+		return "{\"deleted\":" + model.deleteEvents(day) + "}";
+	}
+
+	private String free(Map<String, String> params) {
+		int from = day(params, "from");
+		int to = params.containsKey("to") ? day(params, "to") : from;
+		int dayStart = params.containsKey("start") ? minute(params, "start") : 0;
+		int dayEnd = params.containsKey("end") ? minute(params, "end") : 24 * 60;
+		List<FreeSlot> slots;
+		try {
+			slots = model.findFreeSlots(from, to, number(params, "minutes", 60), dayStart, dayEnd, limit(params));
+		} catch (IllegalArgumentException ex) {
+			throw new RequestException(400, ex.getMessage());
+		}
+		StringBuilder json = new StringBuilder("[");
+		for (FreeSlot slot : slots) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append("{\"date\":\"").append(DateKey.format(slot.getDay()))
+					.append("\",\"start\":\"").append(Event.formatMinutes(slot.getStartMinute()))
+					.append("\",\"end\":\"").append(Event.formatMinutes(slot.getEndMinute())).append("\"}");
+		}
+		return json.append(']').toString();
+	}
+
+	private static String toJson(List<Event> events) {
+		StringBuilder json = new StringBuilder("[");
+		for (Event e : events) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append(eventJson(e));
+		}
+		return json.append(']').toString();
+	}
+
+	private static String eventJson(Event e) {
+		return "{\"date\":" + quote(e.getDate()) + ",\"title\":" + quote(e.getTitle())
+				+ ",\"start\":" + quote(e.getStartTime()) + ",\"endDate\":" + quote(e.getEndDate())
+				+ ",\"end\":" + quote(e.getEndTime()) + "}";
+	}
+
+	/**
+	 * Quotes a string for JSON
+	 * @param s String
+	 * @return JSON string literal
+	 */
+	static String quote(String s) {
+		StringBuilder q = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				q.append('\\').append(c);
+			} else if (c < 0x20) {
+				q.append(String.format("\\u%04x", (int) c));
+			} else {
+				q.append(c);
+			}
+		}
+		return q.append('"').toString();
+	}
+
+	private static String required(Map<String, String> params, String name) {
+		String value = params.get(name);
+		if (value == null || value.isEmpty()) {
+			throw new RequestException(400, "Missing parameter " + name);
+		}
+		return value;
+	}
+
+	private static int day(Map<String, String> params, String name) {
+		try {
+			return DateKey.parse(required(params, name));
+		} catch (IllegalArgumentException ex) {
+			throw new RequestException(400, name + " must be a M/D/YYYY date");
+		}
+	}
+
+	private static int minute(Map<String, String> params, String name) {
+		try {
+			return Event.toMinutes(required(params, name));
+		} catch (IllegalArgumentException ex) {
+			throw new RequestException(400, name + " must be a HH:MM time");
+		}
+	}
+
+	private static int number(Map<String, String> params, String name, int otherwise) {
+		String value = params.get(name);
+		if (value == null) {
+			return otherwise;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException ex) {
+			throw new RequestException(400, name + " must be a number");
+		}
+	}
+
+	private static int limit(Map<String, String> params) {
+		return Math.min(number(params, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+	}
+
+	private static void parseParams(String encoded, Map<String, String> params) {
+		if (encoded == null || encoded.isEmpty()) {
+			return;
+		}
+		for (String pair : encoded.split("&")) {
+			int eq = pair.indexOf('=');
+			String name = eq < 0 ? pair : pair.substring(0, eq);
+			String value = eq < 0 ? "" : pair.substring(eq + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Failure to report to the client with an HTTP status
+	 */
+	@SuppressWarnings("serial")
+	private static class RequestException extends RuntimeException {
+		private final int status;
+
+		RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Reads the parameters of an exchange, hands them to handle() and writes its JSON reply
+	 */
+	private abstract static class Handler implements HttpHandler {
+
+		abstract String handle(String method, Map<String, String> params);
+
+		/**
+		 * Status of a successful reply; only a POST that creates something differs from 200
+		 * @param method HTTP method
+		 * @return status
+		 */
+		int status(String method) {
+			return 200;
+		}
+
+		public void handle(HttpExchange exchange) throws IOException {
+			int status = 200;
+			String body;
+			try {
+				Map<String, String> params = new HashMap<String, String>();
+				parseParams(exchange.getRequestURI().getRawQuery(), params);
+				parseParams(readBody(exchange.getRequestBody()), params);
+				body = handle(exchange.getRequestMethod(), params);
+				status = status(exchange.getRequestMethod());
+			} catch (RequestException ex) {
+				status = ex.status;
+				body = "{\"error\":" + quote(ex.getMessage()) + "}";
+			} catch (RuntimeException ex) {
+				status = 500;
+				body = "{\"error\":" + quote(String.valueOf(ex)) + "}";
+			}
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+
+		private static String readBody(InputStream in) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			for (int n; (n = in.read(buffer)) > 0;) {
+				bytes.write(buffer, 0, n);
+			}
+			return bytes.toString(StandardCharsets.UTF_8.name());
+		}
+	}
+}
@@ -0,0 +1,355 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Several calendars shown together, such as personal, team and room calendars.
+ *
+ * Every calendar is a shard of its own: a CalendarModel with its own directory, journal,
+ * snapshot, index and lock, so a write to one never waits on another. The primary calendar
+ * is the one the view navigates and creates events in; the others live in subdirectories
+ * of a root directory, one per calendar, named after it.
+ *
+ * Queries over the set ask each shown shard for its events in day and time order and merge
+ * the sorted streams with a heap, so nothing is re-sorted. A hidden calendar is skipped by
+ * every query and is not even opened until it is first shown; hiding one leaves a "hidden"
+ * file in its directory so it stays hidden the next time.
+ */
+public class CalendarSet {
+
+	/** Name of the primary calendar */
+	public static final String PRIMARY = "Personal";
+
+	private static final String HIDDEN_FILE = "hidden";
+
+	private final File root;
+	private final CopyOnWriteArrayList<Shard> shards = new CopyOnWriteArrayList<Shard>();
+	private final CopyOnWriteArrayList<ChangeListener> listeners = new CopyOnWriteArrayList<ChangeListener>();
+
+	/**
+	 * Constructor for the CalendarSet
+	 * @param primary Calendar the view navigates and creates events in; always shown
+	 * @param root Directory holding one subdirectory per other calendar, or null for none
+	 */
+	public CalendarSet(CalendarModel primary, File root) {
+		this.root = root;
+		shards.add(new Shard(PRIMARY, null, primary, true));
+		File[] dirs = root == null ? null : root.listFiles();
+		if (dirs != null) {
+			Arrays.sort(dirs);
+			for (File dir : dirs) {
+				if (dir.isDirectory()) {
+					shards.add(new Shard(dir.getName(), dir, null, !new File(dir, HIDDEN_FILE).exists()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Attaches a listener told about changes to the shown calendars other than the primary,
+	 * and about calendars being shown or hidden; attach to the primary calendar separately
+	 * @param l ChangeListener
+	 */
+	public void attach(ChangeListener l) {
+		listeners.add(l);
+	}
+
+	/**
+	 * Detaches a ChangeListener
+	 * @param l ChangeListener
+	 */
+	public void detach(ChangeListener l) {
+		listeners.remove(l);
+	}
+
+	/**
+	 * Gets the names of the calendars, the primary first
+	 * @return names
+	 */
+	public List<String> getNames() {
+		ArrayList<String> names = new ArrayList<String>();
+		for (Shard shard : shards) {
+			names.add(shard.name);
+		}
+		return names;
+	}
+
+	/**
+	 * Gets a calendar, opening it if needed
+	 * @param name Calendar name
+	 * @return calendar, or null if there is none by that name
+	 */
+	public CalendarModel getCalendar(String name) {
+		Shard shard = find(name);
+		return shard == null ? null : shard.open();
+	}
+
+	/**
+	 * Adds an empty calendar, shown
+	 * @param name Calendar name, also used as its directory name
+	 * @return new calendar
+	 * @throws IOException if the calendar cannot be stored
+	 */
+	public CalendarModel addCalendar(String name) throws IOException {
+		if (root == null) {
+			throw new IOException("No directory for more calendars");
+		}
+		if (find(name) != null || name.isEmpty() || !name.equals(new File(name).getName())) {
+			throw new IOException("Not a new calendar name: " + name);
+		}
+		File dir = new File(root, name);
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+		Shard shard = new Shard(name, dir, null, true);
+		shards.add(shard);
+		return shard.open();
+	}
+
+	/**
+	 * Checks whether a calendar is shown
+	 * @param name Calendar name
+	 * @return True if it is shown
+	 */
+	public boolean isVisible(String name) {
+		Shard shard = find(name);
+		return shard != null && shard.visible;
+	}
+
+	/**
+	 * Shows or hides a calendar; the primary calendar is always shown
+	 * @param name Calendar name
+	 * @param visible True to show it
+	 */
+	public void setVisible(String name, boolean visible) {
+		Shard shard = find(name);
+		if (shard == null || shard.dir == null || shard.visible == visible) {
+			return;
+		}
+		shard.visible = visible;
+		File marker = new File(shard.dir, HIDDEN_FILE);
+		try {
+			if (visible) {
+				marker.delete();
+			} else {
+				marker.createNewFile();
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+		fire(new CalendarChange(this, CalendarChange.EVENTS, Integer.MIN_VALUE, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Gets the events of the shown calendars between two days, merged in day and time order
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return events
+	 */
+	public List<Event> getEventsBetween(int fromDay, int toDay) {
+		ArrayList<Event> events = new ArrayList<Event>();
+		merge(fromDay, toDay, true, events, null);
+		return events;
+	}
+
+	/**
+	 * Lists a day's events from the shown calendars other than the primary, each marked
+	 * with its calendar, in time order
+	 * @param day Epoch day
+	 * @return one line per event, or "" if there are none
+	 */
+	public String getOtherEvents(int day) {
+		ArrayList<Event> events = new ArrayList<Event>();
+		ArrayList<String> names = new ArrayList<String>();
+		merge(day, day, false, events, names);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < events.size(); i++) {
+			text.append(events.get(i)).append(" [").append(names.get(i)).append("]\n");
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Gets which days of a month have events in any shown calendar
+	 * @param monthStart Epoch day of the 1st of the month
+	 * @return mask with bit (d - 1) set when day d has an event
+	 */
+	public int getEventMask(int monthStart) {
+		int mask = 0;
+		for (Shard shard : shards) {
+			if (shard.visible) {
+				mask |= shard.open().getEventMask(monthStart);
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Checks whether a time overlaps an event in any shown calendar
+	 * @param day Epoch day
+	 * @param start Starting minute, inclusive
+	 * @param end Ending minute, exclusive
+	 * @return True if the time overlaps an event
+	 */
+	public boolean hasEventConflict(int day, int start, int end) {
+		for (Shard shard : shards) {
+			if (shard.visible && shard.open().hasEventConflict(day, start, end)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a time running past midnight overlaps an event in any shown calendar
+	 * @param day Epoch day the time starts on
+	 * @param start Starting minute on that day, inclusive
+	 * @param endDay Epoch day the time ends on
+	 * @param end Ending minute on that day, exclusive
+	 * @return True if the time overlaps an event
+	 */
+	public boolean hasEventConflict(int day, int start, int endDay, int end) {
+		for (Shard shard : shards) {
+			if (shard.visible && shard.open().hasEventConflict(day, start, endDay, end)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Closes every opened calendar other than the primary, which its owner closes
+	 */
+	public void close() {
+		for (Shard shard : shards) {
+			if (shard.dir != null && shard.model != null) {
+				shard.model.close();
+			}
+		}
+	}
+
+	/**
+	 * Merges the shown shards' sorted events for a range with a heap of one cursor per shard
+	 * @param names Receives the calendar of each event, or null
+	 */
+	private void merge(int fromDay, int toDay, boolean withPrimary, List<Event> events, List<String> names) {
+		final ArrayList<List<Event>> streams = new ArrayList<List<Event>>();
+		ArrayList<String> streamNames = new ArrayList<String>();
+		for (Shard shard : shards) {
+			if (shard.visible && (withPrimary || shard.dir != null)) {
+				List<Event> stream = shard.open().getEventsBetween(fromDay, toDay);
+				if (!stream.isEmpty()) {
+					streams.add(stream);
+					streamNames.add(shard.name);
+				}
+			}
+		}
+		if (streams.size() == 1 && names == null) {
+			events.addAll(streams.get(0));
+			return;
+		}
+		// Each cursor is {stream, position}; ties keep the calendars' order
+		PriorityQueue<int[]> heap = new PriorityQueue<int[]>(Math.max(1, streams.size()), new Comparator<int[]>() {
+			public int compare(int[] a, int[] b) {
+				int c = Event.DAY_ORDER.compare(streams.get(a[0]).get(a[1]), streams.get(b[0]).get(b[1]));
+				return c != 0 ? c : Integer.compare(a[0], b[0]);
+			}
+		});
+		for (int s = 0; s < streams.size(); s++) {
+			heap.add(new int[] { s, 0 });
+		}
+		while (!heap.isEmpty()) {
+			int[] cursor = heap.poll();
+			List<Event> stream = streams.get(cursor[0]);
+			events.add(stream.get(cursor[1]));
+			if (names != null) {
+				names.add(streamNames.get(cursor[0]));
+			}
+			if (++cursor[1] < stream.size()) {
+				heap.add(cursor);
+			}
+		}
+	}
+
+	private Shard find(String name) {
+		for (Shard shard : shards) {
+			if (shard.name.equals(name)) {
+				return shard;
+			}
+		}
+		return null;
+	}
+
+	private void fire(final ChangeEvent change) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				for (ChangeListener l : listeners) {
+					l.stateChanged(change);
+				}
+			}
+		});
+	}
+
+	/**
+	 * One calendar of the set, opened on first use and loaded in the background
+	 */
+	private class Shard implements ChangeListener {
+		final String name;
+		final File dir;
+		volatile CalendarModel model;
+		volatile boolean visible;
+
+		Shard(String name, File dir, CalendarModel model, boolean visible) {
+			this.name = name;
+			this.dir = dir;
+			this.model = model;
+			this.visible = visible;
+		}
+
+		CalendarModel open() {
+			CalendarModel m = model;
+			if (m == null) {
+				synchronized (this) {
+					m = model;
+					if (m == null) {
+						m = new CalendarModel(dir, true);
+						m.attach(this);
+						model = m;
+						if (m.isLoaded()) {
+							// Loaded before this was listening
+							fire(new CalendarChange(CalendarSet.this, CalendarChange.EVENTS, Integer.MIN_VALUE, Integer.MAX_VALUE));
+						}
+					}
+				}
+			}
+			return m;
+		}
+
+		/**
+		 * Passes on changes to the events of a shown calendar; its own navigation is not shown
+		 */
+		public void stateChanged(ChangeEvent e) {
+			if (visible && e instanceof CalendarChange && ((CalendarChange) e).isEventsChanged()) {
+				CalendarChange change = (CalendarChange) e;
+				CalendarChange relayed = new CalendarChange(CalendarSet.this, CalendarChange.EVENTS, change.getFromDay(), change.getToDay());
+				for (ChangeListener l : listeners) {
+					l.stateChanged(relayed);
+				}
+			}
+		}
+	}
+}
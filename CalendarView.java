@@ -5,68 +5,120 @@
  */
 
 import java.awt.BorderLayout;
-import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.Insets;
+import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
 import javax.swing.JDialog;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JRootPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.JTextPane;
+import javax.swing.KeyStroke;
 import javax.swing.ScrollPaneConstants;
-import javax.swing.border.Border;
-import javax.swing.border.LineBorder;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
-public class CalendarView implements ChangeListener {
+public class CalendarView implements ChangeListener, ReminderScheduler.Listener {
 	
 	private CalendarModel model;
+	private CalendarSet calendars;
 	private DAYS[] listOfDays;
 	private MONTHS[] listOfMonths;
-	private int previousHighlight;
-	private int maxDays;
 	
 	private JFrame frame = new JFrame("CALENDAR");
-	private JPanel monthView = new JPanel();
+	private MonthGrid monthGrid;
 	private JLabel monthLabel = new JLabel();
 	private JButton create = new JButton("Create Event");
+	private JButton delete = new JButton("Delete");
 	private JButton deleteSpecified = new JButton("Delete Event Number");
+	private JButton importButton = new JButton("Import");
 	private JButton nextDay = new JButton("Next");
 	private JButton previousDay = new JButton("Previous");
+	private JButton undo = new JButton("Undo");
+	private JButton redo = new JButton("Redo");
 	private JTextPane dayTextPane = new JTextPane();
-	private ArrayList<JButton> dayButton = new ArrayList<JButton>();
+	private String agendaText;
+	private int shownDay = NO_DAY;
+	private boolean editable = true;
+	private boolean loadFailureShown;
+	
+	private static final int NO_DAY = Integer.MIN_VALUE;
+	private static final int FIND_TIME_LIMIT = 20;
+	private static final int SEARCH_LIMIT = 100;
+	private static final int AGENDA_ROWS = 16;
 	
 	/**
 	 * Constructor for CalendarView
 	 * @param model The model will store and update the calendar data
 	 */
 	public CalendarView(CalendarModel model) {
+		this(model, new CalendarSet(model, null));
+	}
+	
+	/**
+	 * Constructor for CalendarView showing other calendars alongside the model
+	 * @param model The model will store and update the calendar data
+	 * @param calendars Calendars shown with the model, which must be their primary calendar
+	 */
+	public CalendarView(CalendarModel model, CalendarSet calendars) {
 		this.model = model;
+		this.calendars = calendars;
 		listOfDays = DAYS.values();
 		listOfMonths = MONTHS.values();
-		maxDays = model.getMaxDays();
-		monthView.setLayout(new GridLayout(0,7));
+		monthGrid = new MonthGrid(model.getMonthLayout());
+		monthGrid.addDayListener(new MonthGrid.DayListener() {
+			public void daySelected(int d) {
+				model.setSelectedDate(d);
+				showDate(d);
+				highlightSelectedDate(d);
+				create.setEnabled(editable);
+				nextDay.setEnabled(true);
+				previousDay.setEnabled(true);
+			}
+		});
 		dayTextPane.setPreferredSize(new Dimension(300, 150));
 		dayTextPane.setEditable(true);
 		
-		createDayButtons();
-		addBlankButtons();
-		addDayButtons();
 		highlightEvents();
 		showDate(model.getSelectedDate());
-		highlightSelectedDate(model.getSelectedDate() - 1);
+		highlightSelectedDate(model.getSelectedDate());
 		
 		create.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -88,7 +140,7 @@ public class CalendarView implements ChangeListener {
 				create.setEnabled(false);
 				nextDay.setEnabled(false);
 				previousDay.setEnabled(false);
-				dayTextPane.setText("");
+				clearDate();
 			}
 		});
 		
@@ -100,17 +152,15 @@ public class CalendarView implements ChangeListener {
 				create.setEnabled(false);
 				nextDay.setEnabled(false);
 				previousDay.setEnabled(false);
-				dayTextPane.setText("");
+				clearDate();
 			}
 		});
 
 		//Button to delete an event on a specific date
-		JButton delete = new JButton("Delete");
 		delete.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				model.deleteEvent();
 				create.setEnabled(false);
-				unHighlightEvents();
 			}
 		}); 
 		
@@ -120,8 +170,7 @@ public class CalendarView implements ChangeListener {
 		monthContainer.setLayout(new BorderLayout());
 		monthLabel.setText(listOfMonths[model.getMonth()] + " " + model.getYear());
 		monthContainer.add(monthLabel, BorderLayout.NORTH);
-		monthContainer.add(new JLabel("       S             M             T             W             T            F           S"), BorderLayout.CENTER);
-		monthContainer.add(monthView, BorderLayout.SOUTH);
+		monthContainer.add(monthGrid, BorderLayout.CENTER);
 		
 		JPanel dayView = new JPanel();
 		dayView.setLayout(new GridLayout());
@@ -154,11 +203,75 @@ public class CalendarView implements ChangeListener {
 		c.gridy = 1;
 		dayView.add(buttonPanel, c);
 		
+		//Undo and redo the model's changes, also on Ctrl+Z and Ctrl+Y
+		AbstractAction undoAction = new AbstractAction() {
+			public void actionPerformed(ActionEvent e) {
+				if (undo.isEnabled()) {
+					model.undo();
+				}
+			}
+		};
+		AbstractAction redoAction = new AbstractAction() {
+			public void actionPerformed(ActionEvent e) {
+				if (redo.isEnabled()) {
+					model.redo();
+				}
+			}
+		};
+		undo.addActionListener(undoAction);
+		redo.addActionListener(redoAction);
+		JRootPane rootPane = frame.getRootPane();
+		rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+		rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+		rootPane.getActionMap().put("undo", undoAction);
+		rootPane.getActionMap().put("redo", redoAction);
+		
+		JButton findTime = new JButton("Find Time");
+		findTime.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				createFindTimeDialog();
+			}
+		});
+		
+		JButton calendarsButton = new JButton("Calendars");
+		calendarsButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				createCalendarsDialog();
+			}
+		});
+		
+		JButton agenda = new JButton("Agenda");
+		agenda.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				createAgendaDialog();
+			}
+		});
+		
+		importButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser();
+				chooser.setFileFilter(new FileNameExtensionFilter("iCalendar (*.ics)", "ics"));
+				if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+					importCalendar(chooser.getSelectedFile());
+				}
+			}
+		});
+		
+		JButton exportButton = new JButton("Export");
+		exportButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser();
+				chooser.setFileFilter(new FileNameExtensionFilter("iCalendar (*.ics)", "ics"));
+				if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+					exportCalendar(chooser.getSelectedFile());
+				}
+			}
+		});
+		
 		JButton quit = new JButton("Quit");
 		quit.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				model.save();
-				System.exit(0);
+				quit();
 			}
 		});
 		
@@ -168,35 +281,103 @@ public class CalendarView implements ChangeListener {
 		frame.add(dayView);
 		frame.add(delete);
 		frame.add(deleteSpecified);
+		frame.add(undo);
+		frame.add(redo);
+		frame.add(findTime);
+		frame.add(agenda);
+		frame.add(calendarsButton);
+		frame.add(createSearchPanel());
+		frame.add(importButton);
+		frame.add(exportButton);
 		frame.add(quit);
 		frame.setLayout(new FlowLayout());
-		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+		frame.addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				quit();
+			}
+		});
+		updateEditing();
 		frame.pack();
 		frame.setVisible(true);		
 		
 	}
 	
+	/**
+	 * Brings the view up to date with a change to the model, touching only what changed:
+	 * the whole grid for a new month, the recoloured cells for changed events, and the
+	 * agenda only when it shows a different day or that day's events changed.
+	 */
 	public void stateChanged(ChangeEvent e) {
-		if(model.hasMonthChanged()) {
-			maxDays = model.getMaxDays();
-			dayButton.clear();
-			monthView.removeAll();
-			monthLabel.setText(listOfMonths[model.getMonth()] + "" + model.getYear());
-			createDayButtons();
-			addBlankButtons();
-			addDayButtons();
-			highlightEvents();
-			previousHighlight = -1;
+		CalendarChange change = e instanceof CalendarChange ? (CalendarChange) e
+				: new CalendarChange(model, CalendarChange.SELECTION | CalendarChange.MONTH | CalendarChange.EVENTS, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		MonthLayout month = model.getMonthLayout();
+		if(change.isMonthChanged()) {
+			monthLabel.setText(listOfMonths[model.getMonth()] + " " + model.getYear());
+			monthGrid.setMonth(month, calendars.getEventMask(month.getFirstDay()));
 			model.resetMonthChanged();
-			frame.pack();
-			frame.repaint();
+			shownDay = NO_DAY;
+		}
+		else if (change.isEventsChanged(month.getFirstDay(), month.getEpochDay(month.getLength()))) {
+			highlightEvents();
+		}
+		if (change.isSelectionChanged()) {
+			showDate(model.getSelectedDate());
+			highlightSelectedDate(model.getSelectedDate());
 		}
-		else {
+		else if (shownDay != NO_DAY && change.isEventsChanged(shownDay, shownDay)) {
 			showDate(model.getSelectedDate());
-			highlightSelectedDate(model.getSelectedDate() - 1);
+		}
+		if (change.isEventsChanged()) {
+			updateEditing();
 		}
 	}
 	
+	/**
+	 * Shows the events about to start in a dialog that leaves the calendar usable
+	 * @param events Events whose reminders are due
+	 */
+	public void remind(List<Event> events) {
+		StringBuilder text = new StringBuilder("Starting soon:");
+		for (Event e : events) {
+			text.append("\n").append(e.getDate()).append(" ").append(e);
+		}
+		JDialog reminder = new JOptionPane(text.toString(), JOptionPane.INFORMATION_MESSAGE).createDialog(frame, "Reminder");
+		reminder.setModal(false);
+		reminder.setVisible(true);
+	}
+	
+	/**
+	 * Enables the buttons that change events only once the model has loaded them, so a
+	 * change never waits on the Event Dispatch Thread for loading to finish. If loading
+	 * failed they stay disabled, and the user is told once.
+	 */
+	private void updateEditing() {
+		boolean loaded = model.isLoaded();
+		if (loaded != editable) {
+			editable = loaded;
+			// Next and Previous are enabled exactly while a day is selected
+			create.setEnabled(loaded && nextDay.isEnabled());
+			delete.setEnabled(loaded);
+			deleteSpecified.setEnabled(loaded);
+			importButton.setEnabled(loaded);
+		}
+		updateUndo();
+		RuntimeException failure = model.getLoadFailure();
+		if (failure != null && !loadFailureShown) {
+			loadFailureShown = true;
+			showMessage("The events could not be loaded, so they cannot be changed: " + failure);
+		}
+	}
+	
+	/**
+	 * Enables the undo and redo buttons when the model has something to undo or redo
+	 */
+	private void updateUndo() {
+		undo.setEnabled(editable && model.canUndo());
+		redo.setEnabled(editable && model.canRedo());
+	}
+	
 	/**
 	 * Creates an event on the selectedDate
 	 * User input
@@ -207,6 +388,9 @@ public class CalendarView implements ChangeListener {
 		final JTextField eventText = new JTextField(30);
 		final JTextField startTime = new JTextField(10);
 		final JTextField endTime = new JTextField(10);
+		final JComboBox<String> repeat = new JComboBox<String>(new String[] { "Never", "Daily", "Weekly", "Monthly", "Yearly" });
+		final JTextField repeatTimes = new JTextField(10);
+		final JTextField endDate = new JTextField(10);
 		JButton save = new JButton("Save");
 		save.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -233,7 +417,50 @@ public class CalendarView implements ChangeListener {
 					timeErrorDialog.setVisible(true);
 			}
 				else if(!eventText.getText().equals("")) {
-					if(model.hasEventConflict(startTime.getText(), endTime.getText())) {
+					// Ending earlier than it starts means ending the next day, unless an end date is given
+					int day = model.getSelectedDay();
+					int start = model.convertHourToMin(startTime.getText());
+					int end = model.convertHourToMin(endTime.getText());
+					int endDay = end < start ? day + 1 : day;
+					if (!endDate.getText().trim().isEmpty()) {
+						try {
+							endDay = DateKey.parse(endDate.getText().trim());
+						} catch (IllegalArgumentException ex) {
+							endDay = day - 1;
+						}
+					}
+					if (endDay < day || (endDay == day && end < start) || (endDay != day && repeat.getSelectedIndex() != 0)) {
+						JDialog dateErrorDialog = new JDialog();
+						dateErrorDialog.setLayout(new GridLayout(2, 0));
+						dateErrorDialog.add(new JLabel(endDay != day && repeat.getSelectedIndex() != 0
+								? "A repeating event must end on the day it starts."
+								: "Please enter an end date in format M/D/YYYY, after the start."));
+						JButton ok = new JButton("Okay");
+						ok.addActionListener(new ActionListener() {
+							public void actionPerformed(ActionEvent e) {
+								dateErrorDialog.dispose();
+							}
+						});
+						dateErrorDialog.add(ok);
+						dateErrorDialog.pack();
+						dateErrorDialog.setVisible(true);
+					}
+					else if (repeat.getSelectedIndex() != 0 && !repeatTimes.getText().trim().isEmpty()
+							&& (!repeatTimes.getText().trim().matches("[0-9]{1,5}") || Integer.parseInt(repeatTimes.getText().trim()) > Recurrence.MAX_COUNT)) {
+						JDialog countErrorDialog = new JDialog();
+						countErrorDialog.setLayout(new GridLayout(2, 0));
+						countErrorDialog.add(new JLabel("Please enter a number of times from 0 to " + Recurrence.MAX_COUNT + ", or leave it empty to repeat forever."));
+						JButton ok = new JButton("Okay");
+						ok.addActionListener(new ActionListener() {
+							public void actionPerformed(ActionEvent e) {
+								countErrorDialog.dispose();
+							}
+						});
+						countErrorDialog.add(ok);
+						countErrorDialog.pack();
+						countErrorDialog.setVisible(true);
+					}
+					else if(calendars.hasEventConflict(day, start, endDay, end)) {
 						JDialog conflictDialog = new JDialog();
 						conflictDialog.setLayout(new GridLayout(2,0));
 						conflictDialog.add(new JLabel("Time Conflict!"));
@@ -248,9 +475,14 @@ public class CalendarView implements ChangeListener {
 						conflictDialog.setVisible(true);
 					} else {
 						eventDialog.dispose();
-						model.createEvent(eventText.getText(), startTime.getText(), endTime.getText());
-						showDate(model.getSelectedDate());
-						highlightEvents();
+						if (repeat.getSelectedIndex() == 0) {
+							model.createEvent(day, eventText.getText(), startTime.getText(), endDay, endTime.getText());
+						} else {
+							String count = repeatTimes.getText().trim();
+							int times = count.isEmpty() ? 0 : Integer.parseInt(count);
+							model.createRecurringEvent(eventText.getText(), startTime.getText(), endTime.getText(),
+									Recurrence.Frequency.values()[repeat.getSelectedIndex() - 1], 1, Recurrence.FOREVER, times);
+						}
 					}
 				}
 			}
@@ -284,6 +516,21 @@ public class CalendarView implements ChangeListener {
 		eventDialog.add(endTime, c);
 		c.anchor = GridBagConstraints.LINE_END;
 		eventDialog.add(save, c);
+		c.gridy = 5;
+		c.anchor = GridBagConstraints.LINE_START;
+		eventDialog.add(new JLabel("Repeat"), c);
+		c.anchor = GridBagConstraints.CENTER;
+		eventDialog.add(new JLabel("Times (blank = forever)"), c);
+		c.gridy = 6;
+		c.anchor = GridBagConstraints.LINE_START;
+		eventDialog.add(repeat, c);
+		c.anchor = GridBagConstraints.CENTER;
+		eventDialog.add(repeatTimes, c);
+		c.gridy = 7;
+		c.anchor = GridBagConstraints.LINE_START;
+		eventDialog.add(new JLabel("End date (blank = same day)"), c);
+		c.gridy = 8;
+		eventDialog.add(endDate, c);
 		eventDialog.pack();
 		eventDialog.setVisible(true);
 	}
@@ -327,97 +574,430 @@ public class CalendarView implements ChangeListener {
 	}
 
 	/**
-	 * Shows the selected date and events on that date.
-	 * @param d The selected date
+	 * Search box over event titles. Results update as the query is typed and
+	 * choosing one goes to its day. Searches run in the background.
+	 * @return panel with the search field and its results
 	 */
-	private void showDate(final int d) {
-		model.setSelectedDate(d);
-		String dayOfWeek = listOfDays[model.getDayOfWeek(d) - 1] + "";
-		String date = (model.getMonth() + 1) + "/" + d + "/" + model.getYear();
-		String events = "";
-		if (model.hasEvent(date)) {
-			events += model.getEvents(date);
-		}
-		dayTextPane.setText(dayOfWeek + " " + date + "\n" + events);
+	private JPanel createSearchPanel() {
+		final JTextField query = new JTextField(15);
+		final DefaultListModel<Event> results = new DefaultListModel<Event>();
+		final JList<Event> resultList = new JList<Event>(results);
+		resultList.setVisibleRowCount(6);
+		resultList.setCellRenderer(new DefaultListCellRenderer() {
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+				Event event = (Event) value;
+				return super.getListCellRendererComponent(list, event.getDate() + " " + event, index, isSelected, cellHasFocus);
+			}
+		});
+		resultList.addListSelectionListener(new ListSelectionListener() {
+			public void valueChanged(ListSelectionEvent e) {
+				Event event = resultList.getSelectedValue();
+				if (!e.getValueIsAdjusting() && event != null) {
+					model.goToDate(event.getDay());
+				}
+			}
+		});
+		query.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				search();
+			}
+			public void removeUpdate(DocumentEvent e) {
+				search();
+			}
+			public void changedUpdate(DocumentEvent e) {
+				search();
+			}
+			private SwingWorker<List<Event>, Void> pending;
+			
+			/**
+			 * Searches off the Event Dispatch Thread, since the first search reads in every
+			 * month to build the title index, and shows the results if the query is unchanged
+			 */
+			private void search() {
+				if (pending != null) {
+					pending.cancel(false);
+				}
+				final String text = query.getText();
+				pending = new SwingWorker<List<Event>, Void>() {
+					protected List<Event> doInBackground() {
+						return model.searchEvents(text, SEARCH_LIMIT);
+					}
+					protected void done() {
+						if (isCancelled() || !text.equals(query.getText())) {
+							return;
+						}
+						results.clear();
+						try {
+							for (Event event : get()) {
+								results.addElement(event);
+							}
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+						} catch (ExecutionException ex) {
+							ex.printStackTrace();
+						}
+					}
+				};
+				pending.execute();
+			}
+		});
+		
+		JPanel searchPanel = new JPanel();
+		searchPanel.setLayout(new BorderLayout());
+		searchPanel.setBorder(BorderFactory.createTitledBorder("Search"));
+		searchPanel.add(query, BorderLayout.NORTH);
+		JScrollPane resultScrollPane = new JScrollPane(resultList);
+		resultScrollPane.setPreferredSize(new Dimension(220, 110));
+		searchPanel.add(resultScrollPane, BorderLayout.CENTER);
+		return searchPanel;
 	}
 
 	/**
-	 * Highlights the currently selected date.
-	 * @param d the currently selected date
+	 * Shows, hides and adds calendars.
+	 * Events of the other shown calendars are highlighted and listed under the day's own.
 	 */
-	private void highlightSelectedDate(int d) {
-		Border border = new LineBorder(Color.BLUE, 2);
-		dayButton.get(d).setBorder(border);
-		if (previousHighlight != -1) {
-			dayButton.get(previousHighlight).setBorder(new JButton().getBorder());
+	public void createCalendarsDialog() {
+		final JDialog calendarsDialog = new JDialog();
+		calendarsDialog.setTitle("Calendars");
+		final JPanel list = new JPanel();
+		list.setLayout(new GridLayout(0, 1));
+		for (String name : calendars.getNames()) {
+			list.add(calendarCheckBox(name));
 		}
-		previousHighlight = d;
+		final JTextField newName = new JTextField(15);
+		JButton add = new JButton("Add");
+		add.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				String name = newName.getText().trim();
+				try {
+					calendars.addCalendar(name);
+				} catch (IOException ex) {
+					showMessage("Could not add the calendar: " + ex.getMessage());
+					return;
+				}
+				newName.setText("");
+				list.add(calendarCheckBox(name));
+				calendarsDialog.pack();
+			}
+		});
+		JPanel addPanel = new JPanel();
+		addPanel.add(newName);
+		addPanel.add(add);
+		calendarsDialog.setLayout(new BorderLayout());
+		calendarsDialog.add(list, BorderLayout.CENTER);
+		calendarsDialog.add(addPanel, BorderLayout.SOUTH);
+		calendarsDialog.pack();
+		calendarsDialog.setVisible(true);
+	}
+	
+	private JCheckBox calendarCheckBox(final String name) {
+		final JCheckBox box = new JCheckBox(name, calendars.isVisible(name));
+		box.setEnabled(!name.equals(CalendarSet.PRIMARY));
+		box.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				calendars.setVisible(name, box.isSelected());
+			}
+		});
+		return box;
 	}
 
 	/**
-	 * Highlights days containing events.
+	 * Lists the events of a week, month, year or any range of days, one row per event.
+	 * Rows are paged in from the model as they scroll into view, so long ranges stay cheap.
+	 * Choosing a row goes to its day.
 	 */
-	private void highlightEvents() {
-		for (int i = 1; i <= maxDays; i++) {
-			if (model.hasEvent((model.getMonth() + 1) + "/" + i + "/" + model.getYear())) {
-				dayButton.get(i - 1).setBackground(Color.YELLOW);
+	public void createAgendaDialog() {
+		final JDialog agendaDialog = new JDialog();
+		agendaDialog.setTitle("Agenda");
+		agendaDialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+		final JComboBox<String> span = new JComboBox<String>(new String[] { "Week", "Month", "Year", "Custom" });
+		int today = model.getSelectedDay();
+		final JTextField fromDate = new JTextField(DateKey.format(today), 10);
+		final JTextField toDate = new JTextField(DateKey.format(today + 6), 10);
+		final JList<Event> rows = new JList<Event>();
+		rows.setVisibleRowCount(AGENDA_ROWS);
+		rows.setFixedCellHeight(rows.getFontMetrics(rows.getFont()).getHeight() + 2);
+		rows.setFixedCellWidth(360);
+		rows.setCellRenderer(new DefaultListCellRenderer() {
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+				Event event = (Event) value;
+				return super.getListCellRendererComponent(list, event.getDate() + " " + event, index, isSelected, cellHasFocus);
 			}
-		}
+		});
+		rows.addListSelectionListener(new ListSelectionListener() {
+			public void valueChanged(ListSelectionEvent e) {
+				int index = rows.getSelectedIndex();
+				if (!e.getValueIsAdjusting() && index >= 0) {
+					model.goToDate(((AgendaListModel) rows.getModel()).getDayAt(index));
+				}
+			}
+		});
+		span.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				LocalDate selected = LocalDate.ofEpochDay(model.getSelectedDay());
+				LocalDate from, to;
+				switch (span.getSelectedIndex()) {
+				case 0:
+					from = selected;
+					to = selected.plusDays(6);
+					break;
+				case 1:
+					from = selected.withDayOfMonth(1);
+					to = from.plusMonths(1).minusDays(1);
+					break;
+				case 2:
+					from = selected.withDayOfYear(1);
+					to = from.plusYears(1).minusDays(1);
+					break;
+				default:
+					return;
+				}
+				fromDate.setText(DateKey.format((int) from.toEpochDay()));
+				toDate.setText(DateKey.format((int) to.toEpochDay()));
+			}
+		});
+		JButton show = new JButton("Show");
+		show.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				int from, to;
+				try {
+					from = DateKey.parse(fromDate.getText().trim());
+					to = DateKey.parse(toDate.getText().trim());
+				} catch (IllegalArgumentException ex) {
+					showMessage("Please enter dates as M/D/YYYY.");
+					return;
+				}
+				if (to < from) {
+					showMessage("The range must end on or after its first day.");
+					return;
+				}
+				if (rows.getModel() instanceof AgendaListModel) {
+					model.detach((AgendaListModel) rows.getModel());
+				}
+				AgendaListModel agenda = new AgendaListModel(model, from, to);
+				model.attach(agenda);
+				rows.setModel(agenda);
+				agendaDialog.setTitle("Agenda: " + agenda.getSize() + " events");
+			}
+		});
+		agendaDialog.addWindowListener(new WindowAdapter() {
+			public void windowClosed(WindowEvent e) {
+				if (rows.getModel() instanceof AgendaListModel) {
+					model.detach((AgendaListModel) rows.getModel());
+				}
+			}
+		});
+		
+		agendaDialog.setLayout(new GridBagLayout());
+		GridBagConstraints c = new GridBagConstraints();
+		c.insets = new Insets(2, 2, 2, 2);
+		c.anchor = GridBagConstraints.LINE_START;
+		c.gridy = 0;
+		agendaDialog.add(span, c);
+		agendaDialog.add(new JLabel("From"), c);
+		agendaDialog.add(fromDate, c);
+		agendaDialog.add(new JLabel("To"), c);
+		agendaDialog.add(toDate, c);
+		agendaDialog.add(show, c);
+		c.gridy = 1;
+		c.gridx = 0;
+		c.gridwidth = 6;
+		c.fill = GridBagConstraints.HORIZONTAL;
+		agendaDialog.add(new JScrollPane(rows), c);
+		show.doClick();
+		agendaDialog.pack();
+		agendaDialog.setVisible(true);
+	}
+
+	/**
+	 * Looks for free time between two dates within working hours.
+	 * Choosing a result goes to its day.
+	 */
+	public void createFindTimeDialog() {
+		final JDialog findDialog = new JDialog();
+		findDialog.setTitle("Find Time");
+		int today = model.getSelectedDay();
+		final JTextField fromDate = new JTextField(DateKey.format(today), 10);
+		final JTextField toDate = new JTextField(DateKey.format(today + 6), 10);
+		final JTextField length = new JTextField("60", 5);
+		final JTextField dayStart = new JTextField("09:00", 5);
+		final JTextField dayEnd = new JTextField("17:00", 5);
+		final DefaultListModel<FreeSlot> results = new DefaultListModel<FreeSlot>();
+		final JList<FreeSlot> resultList = new JList<FreeSlot>(results);
+		resultList.setVisibleRowCount(8);
+		resultList.addListSelectionListener(new ListSelectionListener() {
+			public void valueChanged(ListSelectionEvent e) {
+				FreeSlot slot = resultList.getSelectedValue();
+				if (!e.getValueIsAdjusting() && slot != null) {
+					model.goToDate(slot.getDay());
+				}
+			}
+		});
+		JButton find = new JButton("Find");
+		find.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				results.clear();
+				try {
+					for (FreeSlot slot : model.findFreeSlots(DateKey.parse(fromDate.getText().trim()), DateKey.parse(toDate.getText().trim()),
+							Integer.parseInt(length.getText().trim()), Event.toMinutes(dayStart.getText().trim()),
+							Event.toMinutes(dayEnd.getText().trim()), FIND_TIME_LIMIT)) {
+						results.addElement(slot);
+					}
+				} catch (IllegalArgumentException ex) {
+					showMessage("Please enter dates as M/D/YYYY, minutes as a number and hours as XX:XX.");
+				}
+			}
+		});
+		
+		findDialog.setLayout(new GridBagLayout());
+		GridBagConstraints c = new GridBagConstraints();
+		c.insets = new Insets(2, 2, 2, 2);
+		c.anchor = GridBagConstraints.LINE_START;
+		c.gridy = 0;
+		findDialog.add(new JLabel("From"), c);
+		findDialog.add(fromDate, c);
+		findDialog.add(new JLabel("To"), c);
+		findDialog.add(toDate, c);
+		c.gridy = 1;
+		findDialog.add(new JLabel("Minutes"), c);
+		findDialog.add(length, c);
+		findDialog.add(new JLabel("Hours"), c);
+		findDialog.add(dayStart, c);
+		findDialog.add(dayEnd, c);
+		findDialog.add(find, c);
+		c.gridy = 2;
+		c.gridx = 0;
+		c.gridwidth = 6;
+		c.fill = GridBagConstraints.HORIZONTAL;
+		findDialog.add(new JScrollPane(resultList), c);
+		findDialog.pack();
+		findDialog.setVisible(true);
 	}
 	
 	/**
-	 * When event is deleted, unhighlight that day
+	 * Imports an .ics file on a background thread; the model tells the view what changed
+	 * @param file iCalendar file
 	 */
-	private void unHighlightEvents() {
-		for (int i = 1; i <= maxDays; i++) {
-			if (model.hasEvent((model.getMonth() + 1) + "/" + i + "/" + model.getYear())) {
-				dayButton.get(i - 1).setBackground(Color.WHITE);
+	private void importCalendar(final File file) {
+		new Thread(new Runnable() {
+			public void run() {
+				final ICalendar calendar = new ICalendar(model);
+				String message;
+				try {
+					calendar.importFile(file);
+					message = "Imported " + calendar.getImported() + " of " + calendar.getRead() + " events.";
+				} catch (IOException ex) {
+					message = "Could not import " + file.getName() + ": " + ex.getMessage();
+				}
+				final String text = message;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						showMessage(text);
+					}
+				});
 			}
-		}
+		}, "ics-import").start();
+	}
+	
+	/**
+	 * Exports the calendar to an .ics file on a background thread
+	 * @param file iCalendar file to write
+	 */
+	private void exportCalendar(final File file) {
+		new Thread(new Runnable() {
+			public void run() {
+				String message;
+				try {
+					message = "Exported " + new ICalendar(model).exportFile(file) + " events.";
+				} catch (IOException ex) {
+					message = "Could not export " + file.getName() + ": " + ex.getMessage();
+				}
+				final String text = message;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						showMessage(text);
+					}
+				});
+			}
+		}, "ics-export").start();
 	}
 	
 	/**
-	 * Creates buttons representing days of the current month and adds them to an array list
-	 *	The day buttons are clickable 
+	 * Closes the other calendars and then the model on a background thread, which saves
+	 * them and lets go of their shutdown hooks and MXBeans, then disposes of every window
+	 * so the application ends
 	 */
-	private void createDayButtons() {
-		for (int i = 1; i <= maxDays; i++) {
-			final int d = i;
-			JButton day = new JButton(Integer.toString(d));
-			day.setBackground(Color.WHITE);
+	private void quit() {
+		frame.setVisible(false);
+		new Thread(new Runnable() {
+			public void run() {
+				calendars.close();
+				model.close();
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						for (Window w : Window.getWindows()) {
+							w.dispose();
+						}
+					}
+				});
+			}
+		}, "calendar-close").start();
+	}
 	
-			day.addActionListener(new ActionListener() {
+	private void showMessage(String text) {
+		final JDialog messageDialog = new JDialog();
+		messageDialog.setLayout(new GridLayout(2, 0));
+		messageDialog.add(new JLabel(text));
+		JButton ok = new JButton("Okay");
+		ok.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				messageDialog.dispose();
+			}
+		});
+		messageDialog.add(ok);
+		messageDialog.pack();
+		messageDialog.setVisible(true);
+	}
 	
-				public void actionPerformed(ActionEvent arg0) {
-					showDate(d);
-					highlightSelectedDate(d - 1);
-					create.setEnabled(true);
-					nextDay.setEnabled(true);
-					previousDay.setEnabled(true);
-				}
-			});
-			dayButton.add(day);
+	/**
+	 * Shows the selected date and events on that date.
+	 * @param d The selected date
+	 */
+	private void showDate(final int d) {
+		int day = model.getMonthLayout().getEpochDay(d);
+		String text = listOfDays[model.getDayOfWeek(d) - 1] + " " + DateKey.format(day) + "\n" + model.getEvents(day);
+		String others = calendars.getOtherEvents(day);
+		if (!others.isEmpty()) {
+			text += "\nOther calendars\n" + others;
+		}
+		shownDay = day;
+		if (!text.equals(agendaText)) {
+			agendaText = text;
+			dayTextPane.setText(text);
 		}
 	}
 
 	/**
-	 * Adds the buttons representing the days of the month to the panel.
+	 * Empties the agenda while no day is selected.
 	 */
-	private void addDayButtons() {
-		for (JButton d : dayButton) {
-			monthView.add(d);
-		}
+	private void clearDate() {
+		shownDay = NO_DAY;
+		agendaText = "";
+		dayTextPane.setText("");
 	}
 
 	/**
-	 * Adds filler buttons before the start of the month to align calendar.
+	 * Highlights the currently selected date.
+	 * @param d the currently selected date
 	 */
-	private void addBlankButtons() {
-		for (int j = 1; j < model.getDayOfWeek(1); j++) {
-			JButton blank = new JButton();
-			blank.setEnabled(false);
-			monthView.add(blank);
-		}
+	private void highlightSelectedDate(int d) {
+		monthGrid.setSelectedDay(d);
+	}
+
+	/**
+	 * Highlights days containing events and clears days that no longer have any.
+	 */
+	private void highlightEvents() {
+		monthGrid.setEventMask(calendars.getEventMask(model.getMonthLayout().getFirstDay()));
 	}
 }
-					
\ No newline at end of file
@@ -0,0 +1,75 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.time.LocalDate;
+
+/**
+ * Converts between calendar dates and epoch days, the int keys used by the event index.
+ * An epoch day is the number of days since 1/1/1970.
+ */
+public final class DateKey {
+
+	private DateKey() {
+	}
+
+	/**
+	 * Gets the epoch day of a date
+	 * @param year Year
+	 * @param month Month of the year (1-12)
+	 * @param day Day of the month
+	 * @return epoch day
+	 */
+	public static int of(int year, int month, int day) {
+		return (int) LocalDate.of(year, month, day).toEpochDay();
+	}
+
+	/**
+	 * Parses a date in the format of M/D/YYYY without building substrings
+	 * @param date Date in the format of M/D/YYYY
+	 * @return epoch day
+	 */
+	public static int parse(String date) {
+		int month = 0, day = 0, year = 0;
+		int part = 0;
+		for (int i = 0; i < date.length(); i++) {
+			char ch = date.charAt(i);
+			if (ch == '/') {
+				part++;
+			} else if (ch >= '0' && ch <= '9' && part == 0) {
+				month = month * 10 + (ch - '0');
+			} else if (ch >= '0' && ch <= '9' && part == 1) {
+				day = day * 10 + (ch - '0');
+			} else if (ch >= '0' && ch <= '9' && part == 2) {
+				year = year * 10 + (ch - '0');
+			} else {
+				throw new IllegalArgumentException("Not a M/D/YYYY date: " + date);
+			}
+		}
+		if (part != 2) {
+			throw new IllegalArgumentException("Not a M/D/YYYY date: " + date);
+		}
+		return of(year, month, day);
+	}
+
+	/**
+	 * Gets the epoch day of the first day of the month containing a day
+	 * @param epochDay Epoch day
+	 * @return epoch day of the 1st of that month
+	 */
+	public static int monthStart(int epochDay) {
+		return epochDay - LocalDate.ofEpochDay(epochDay).getDayOfMonth() + 1;
+	}
+
+	/**
+	 * Formats an epoch day as M/D/YYYY
+	 * @param epochDay Epoch day
+	 * @return date in the format of M/D/YYYY
+	 */
+	public static String format(int epochDay) {
+		LocalDate d = LocalDate.ofEpochDay(epochDay);
+		return d.getMonthValue() + "/" + d.getDayOfMonth() + "/" + d.getYear();
+	}
+}
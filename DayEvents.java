@@ -0,0 +1,191 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The events of one day, always sorted by starting time.
+ * Events are inserted at their binary-search position, and a running maximum of the
+ * ending times lets a conflict check look at a single neighbour instead of the whole day.
+ * The numbered agenda text is built once and kept until the day's events change.
+ */
+public class DayEvents implements Iterable<Event>, Serializable {
+	private static final long serialVersionUID = 5375419621030853727L;
+
+	private Event[] events = new Event[4];
+	private int[] maxEnd = new int[4];
+	private int size;
+	private transient String agenda;
+	/** Snapshot generation of the owning index this list was made in; see EventIndex.snapshot() */
+	transient int generation;
+
+	/**
+	 * Constructor for an empty day
+	 */
+	public DayEvents() {
+	}
+
+	/**
+	 * Constructor for a copy of a day
+	 * @param other Day to copy
+	 */
+	public DayEvents(DayEvents other) {
+		events = Arrays.copyOf(other.events, Math.max(other.size + 1, 4));
+		maxEnd = Arrays.copyOf(other.maxEnd, events.length);
+		size = other.size;
+		agenda = other.agenda;
+	}
+
+	/**
+	 * Number of events on the day
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the day has no events
+	 * @return True if there are none
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets an event by its position in starting-time order
+	 * @param i Position
+	 * @return event
+	 */
+	public Event get(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Event " + i + " of " + size);
+		}
+		return events[i];
+	}
+
+	/**
+	 * Inserts an event after every event starting at or before it
+	 * @param e Event
+	 * @return position of the event
+	 */
+	public int add(Event e) {
+		int pos = upperBound(e.getStartMinute());
+		if (size == events.length) {
+			events = Arrays.copyOf(events, size * 2);
+			maxEnd = Arrays.copyOf(maxEnd, size * 2);
+		}
+		System.arraycopy(events, pos, events, pos + 1, size - pos);
+		events[pos] = e;
+		size++;
+		updateMaxEnd(pos);
+		agenda = null;
+		return pos;
+	}
+
+	/**
+	 * Removes an event by its position in starting-time order
+	 * @param i Position
+	 * @return removed event
+	 */
+	public Event remove(int i) {
+		Event removed = get(i);
+		System.arraycopy(events, i + 1, events, i, size - i - 1);
+		size--;
+		events[size] = null;
+		updateMaxEnd(i);
+		agenda = null;
+		return removed;
+	}
+
+	/**
+	 * Checks whether a time range overlaps any event of the day
+	 * @param start Starting minute, inclusive
+	 * @param end Ending minute, exclusive
+	 * @return True if some event overlaps the range
+	 */
+	public boolean overlaps(int start, int end) {
+		// Every event starting before the range ends is a candidate; the latest end among them decides.
+		// A range of zero length still conflicts with an event running at its start.
+		int before = lowerBound(Math.max(end, start + 1));
+		return before > 0 && maxEnd[before - 1] > start;
+	}
+
+	/**
+	 * Numbered list of the day's events, one per line
+	 * @return agenda text
+	 */
+	public String getAgenda() {
+		if (agenda == null) {
+			StringBuilder builder = new StringBuilder(size * 32);
+			for (int i = 0; i < size; i++) {
+				builder.append(i + 1).append("   ").append(events[i]).append('\n');
+			}
+			agenda = builder.toString();
+		}
+		return agenda;
+	}
+
+	public Iterator<Event> iterator() {
+		return new Iterator<Event>() {
+			private int next;
+
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			public Event next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return events[next++];
+			}
+		};
+	}
+
+	/**
+	 * First position whose event starts at or after a minute
+	 */
+	private int lowerBound(int minute) {
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (events[mid].getStartMinute() < minute) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * First position whose event starts after a minute
+	 */
+	private int upperBound(int minute) {
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (events[mid].getStartMinute() <= minute) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private void updateMaxEnd(int from) {
+		int running = from == 0 ? Integer.MIN_VALUE : maxEnd[from - 1];
+		for (int i = from; i < size; i++) {
+			running = Math.max(running, events[i].getEndMinute());
+			maxEnd[i] = running;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Undo and redo stacks of changes to a CalendarModel.
+ *
+ * An Edit records what a change did rather than a copy of the calendar: the events it
+ * added and removed, and each repeating event's rule before and after. Events and rules
+ * never change once made, so an edit shares them with the index and costs only as much as
+ * the change itself. Undoing applies the edit backwards and redoing applies it again.
+ *
+ * Not thread-safe; the model only uses it with its write lock held.
+ */
+public class EditHistory {
+
+	/** Most changes kept for undoing; older ones are forgotten */
+	public static final int MAX_EDITS = 100;
+
+	private final ArrayDeque<Edit> undo = new ArrayDeque<Edit>();
+	private final ArrayDeque<Edit> redo = new ArrayDeque<Edit>();
+
+	/**
+	 * Records a change that was just made, and forgets anything that could be redone
+	 * @param edit Change; ignored if it did nothing
+	 */
+	public void record(Edit edit) {
+		if (edit.isEmpty()) {
+			return;
+		}
+		redo.clear();
+		if (undo.size() == MAX_EDITS) {
+			undo.removeLast();
+		}
+		undo.push(edit);
+	}
+
+	/**
+	 * Takes the latest change to undo, moving it to the redo stack
+	 * @return edit to apply backwards, or null if there is none
+	 */
+	public Edit undo() {
+		Edit edit = undo.poll();
+		if (edit != null) {
+			redo.push(edit);
+		}
+		return edit;
+	}
+
+	/**
+	 * Takes the latest undone change to redo, moving it back to the undo stack
+	 * @return edit to apply again, or null if there is none
+	 */
+	public Edit redo() {
+		Edit edit = redo.poll();
+		if (edit != null) {
+			undo.push(edit);
+		}
+		return edit;
+	}
+
+	public boolean canUndo() {
+		return !undo.isEmpty();
+	}
+
+	public boolean canRedo() {
+		return !redo.isEmpty();
+	}
+
+	/**
+	 * One change: events added and removed, and repeating events replaced
+	 */
+	public static class Edit {
+		private final ArrayList<Event> added = new ArrayList<Event>();
+		private final ArrayList<Event> removed = new ArrayList<Event>();
+		private final ArrayList<Recurrence> before = new ArrayList<Recurrence>();
+		private final ArrayList<Recurrence> after = new ArrayList<Recurrence>();
+		private int fromDay = Integer.MAX_VALUE;
+		private int toDay = Integer.MIN_VALUE;
+
+		/**
+		 * Notes an event the change added
+		 * @param e Event
+		 */
+		public void added(Event e) {
+			added.add(e);
+			cover(e.getDay(), e.getEndDay());
+		}
+
+		/**
+		 * Notes events the change added
+		 * @param events Events
+		 */
+		public void added(List<Event> events) {
+			for (Event e : events) {
+				added(e);
+			}
+		}
+
+		/**
+		 * Notes an event the change removed
+		 * @param e Event
+		 */
+		public void removed(Event e) {
+			removed.add(e);
+			cover(e.getDay(), e.getEndDay());
+		}
+
+		/**
+		 * Notes a repeating event the change created or replaced
+		 * @param old Rule before the change, or null if it is new
+		 * @param r Rule after the change
+		 */
+		public void replaced(Recurrence old, Recurrence r) {
+			before.add(old);
+			after.add(r);
+			cover(r.getStartDay(), r.getUntilDay());
+			if (old != null) {
+				cover(old.getStartDay(), old.getUntilDay());
+			}
+		}
+
+		/**
+		 * Gets the events to add when applying the change
+		 * @param forward True to redo, false to undo
+		 * @return events in day and time order
+		 */
+		public List<Event> toAdd(boolean forward) {
+			return sorted(forward ? added : removed);
+		}
+
+		/**
+		 * Gets the events to remove when applying the change
+		 * @param forward True to redo, false to undo
+		 * @return events, latest change first
+		 */
+		public List<Event> toRemove(boolean forward) {
+			ArrayList<Event> events = new ArrayList<Event>(forward ? removed : added);
+			Collections.reverse(events);
+			return events;
+		}
+
+		/**
+		 * Gets the repeating events to restore when applying the change
+		 * @param forward True to redo, false to undo
+		 * @return rules, or null for a rule that did not exist, latest change last
+		 */
+		public List<Recurrence> toPut(boolean forward) {
+			if (forward) {
+				return after;
+			}
+			ArrayList<Recurrence> rules = new ArrayList<Recurrence>(before);
+			Collections.reverse(rules);
+			return rules;
+		}
+
+		/**
+		 * Gets the ids of the repeating events in the same order as toPut()
+		 * @param forward True to redo, false to undo
+		 * @return rule ids
+		 */
+		public int[] toPutIds(boolean forward) {
+			int[] ids = new int[after.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[forward ? i : ids.length - 1 - i] = after.get(i).getId();
+			}
+			return ids;
+		}
+
+		public int getFromDay() {
+			return fromDay;
+		}
+
+		public int getToDay() {
+			return toDay;
+		}
+
+		public boolean isEmpty() {
+			return added.isEmpty() && removed.isEmpty() && after.isEmpty();
+		}
+
+		private void cover(int first, int last) {
+			fromDay = Math.min(fromDay, first);
+			toDay = Math.max(toDay, last);
+		}
+
+		private static List<Event> sorted(List<Event> events) {
+			ArrayList<Event> copy = new ArrayList<Event>(events);
+			Collections.sort(copy, Event.DAY_ORDER);
+			return copy;
+		}
+	}
+}
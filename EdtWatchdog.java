@@ -0,0 +1,169 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Notices when one event on the Swing dispatch thread runs longer than a threshold, such as
+ * a model listener or a CalendarView handler doing slow work, and records the dispatch
+ * thread's stack while it is still stuck. Stalls are logged to the EdtWatchdog logger and
+ * published as the MXBean SimpleCalendar:type=EdtWatchdog.
+ *
+ * Installed by install(), which SimpleCalendar calls when the calendar.edt.stallMillis
+ * system property is set. Until then nothing is hooked into the event queue.
+ */
+public class EdtWatchdog implements EdtWatchdogMXBean {
+
+	private static final int MAX_STALLS = 20;
+	private static final int MAX_FRAMES = 40;
+	private static final Logger log = Logger.getLogger("EdtWatchdog");
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private volatile long thresholdNanos;
+	/** When the event being dispatched started, or 0 between events */
+	private volatile long dispatchStart;
+	private volatile Thread dispatchThread;
+	private int depth;
+	private final AtomicLong stallCount = new AtomicLong();
+	private final AtomicLong longestStall = new AtomicLong();
+	private final ArrayDeque<String> recent = new ArrayDeque<String>();
+
+	private EdtWatchdog(long thresholdMillis) {
+		thresholdNanos = thresholdMillis * 1000000L;
+	}
+
+	/**
+	 * Installs a watchdog if the calendar.edt.stallMillis system property is set
+	 * @return watchdog, or null if the property is not set
+	 */
+	public static EdtWatchdog installIfConfigured() {
+		Long millis = Long.getLong("calendar.edt.stallMillis");
+		return millis == null ? null : install(millis);
+	}
+
+	/**
+	 * Hooks a watchdog into the system event queue and starts its monitor thread
+	 * @param thresholdMillis Longest an event may run before it counts as a stall
+	 * @return watchdog
+	 */
+	public static EdtWatchdog install(long thresholdMillis) {
+		final EdtWatchdog watchdog = new EdtWatchdog(thresholdMillis);
+		Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EventQueue() {
+			protected void dispatchEvent(AWTEvent event) {
+				watchdog.dispatchThread = Thread.currentThread();
+				// A modal dialog dispatches from inside an event; time the inner events on their own
+				watchdog.depth++;
+				watchdog.dispatchStart = System.nanoTime();
+				try {
+					super.dispatchEvent(event);
+				} finally {
+					watchdog.depth--;
+					watchdog.dispatchStart = watchdog.depth > 0 ? System.nanoTime() : 0;
+				}
+			}
+		});
+		Thread monitor = new Thread(new Runnable() {
+			public void run() {
+				watchdog.watch();
+			}
+		}, "edt-watchdog");
+		monitor.setDaemon(true);
+		monitor.start();
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(watchdog, new ObjectName("SimpleCalendar:type=EdtWatchdog"));
+		} catch (JMException ex) {
+			ex.printStackTrace();
+		}
+		return watchdog;
+	}
+
+	/**
+	 * Polls the dispatch thread. A stall is reported once, with the stack taken when it first
+	 * crosses the threshold, and its length is known when the event finally finishes.
+	 */
+	private void watch() {
+		long stalled = 0;
+		StackTraceElement[] stack = null;
+		long lastSeen = 0;
+		while (true) {
+			try {
+				Thread.sleep(Math.max(5, thresholdNanos / 4000000L));
+			} catch (InterruptedException ex) {
+				return;
+			}
+			long start = dispatchStart;
+			long now = System.nanoTime();
+			if (stalled != 0 && start != stalled) {
+				report(lastSeen - stalled, stack);
+				stalled = 0;
+			}
+			if (stalled == 0 && start != 0 && now - start > thresholdNanos) {
+				Thread t = dispatchThread;
+				stack = t == null ? new StackTraceElement[0] : t.getStackTrace();
+				if (dispatchStart == start) {
+					stalled = start;
+				}
+			}
+			if (stalled != 0) {
+				lastSeen = now;
+			}
+		}
+	}
+
+	private void report(long nanos, StackTraceElement[] stack) {
+		long millis = nanos / 1000000L;
+		stallCount.incrementAndGet();
+		long longest = longestStall.get();
+		while (millis > longest && !longestStall.compareAndSet(longest, millis)) {
+			longest = longestStall.get();
+		}
+		StringBuilder text = new StringBuilder();
+		text.append(LocalDateTime.now().format(TIME)).append(" dispatch thread blocked for at least ").append(millis).append(" ms");
+		for (int i = 0; i < stack.length && i < MAX_FRAMES; i++) {
+			text.append("\n\tat ").append(stack[i]);
+		}
+		String stall = text.toString();
+		synchronized (recent) {
+			if (recent.size() == MAX_STALLS) {
+				recent.removeFirst();
+			}
+			recent.addLast(stall);
+		}
+		log.warning(stall);
+	}
+
+	public long getThresholdMillis() {
+		return thresholdNanos / 1000000L;
+	}
+
+	public void setThresholdMillis(long thresholdMillis) {
+		thresholdNanos = Math.max(1, thresholdMillis) * 1000000L;
+	}
+
+	public long getStallCount() {
+		return stallCount.get();
+	}
+
+	public long getLongestStallMillis() {
+		return longestStall.get();
+	}
+
+	public String[] getRecentStalls() {
+		synchronized (recent) {
+			return recent.toArray(new String[recent.size()]);
+		}
+	}
+}
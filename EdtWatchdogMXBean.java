@@ -0,0 +1,25 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+/**
+ * JMX view of EdtWatchdog.
+ */
+public interface EdtWatchdogMXBean {
+
+	long getThresholdMillis();
+
+	void setThresholdMillis(long thresholdMillis);
+
+	long getStallCount();
+
+	long getLongestStallMillis();
+
+	/**
+	 * Gets the most recent stalls, newest last, each with the stack of the dispatch thread
+	 * @return stall reports
+	 */
+	String[] getRecentStalls();
+}
@@ -5,28 +5,223 @@
  */
 
 import java.io.Serializable;
+import java.util.Comparator;
 
 public class Event implements Serializable {
+	private static final long serialVersionUID = 8305261583689032883L;
+
+	/** Orders events by day, then by starting time */
+	public static final Comparator<Event> DAY_ORDER = new Comparator<Event>() {
+		public int compare(Event event1, Event event2) {
+			if (event1.getDay() != event2.getDay()) {
+				return Integer.compare(event1.getDay(), event2.getDay());
+			}
+			return Integer.compare(event1.getStartMinute(), event2.getStartMinute());
+		}
+	};
+
 	private String title;
 	private String date;
-	public String startTime;
-	public String endTime;
-	
+	private String startTime;
+	private String endTime;
+	/** Date the event ends on when it is later than date, otherwise null */
+	private String endDate;
+	private transient int day;
+	private transient int endDay;
+	private transient int startMinute;
+	private transient int endMinute;
+
 	public Event(String title, String date, String startTime, String endTime) {
+		this(title, date, startTime, null, endTime);
+	}
+
+	/**
+	 * Constructor for an event that may run past midnight, such as overnight or for days
+	 * @param title Title of the event
+	 * @param date Date it starts on, in the format of M/D/YYYY
+	 * @param startTime Starting time
+	 * @param endDate Date it ends on, or null or the same date for an event within one day
+	 * @param endTime Ending time on the end date
+	 */
+	public Event(String title, String date, String startTime, String endDate, String endTime) {
 		this.title = title;
 		this.date = date;
 		this.startTime = startTime;
 		this.endTime = endTime;
+		this.day = DateKey.parse(date);
+		this.startMinute = toMinutes(startTime);
+		this.endMinute = endTime.equals("") ? startMinute : toMinutes(endTime);
+		int last = endDate == null || endTime.equals("") ? day : DateKey.parse(endDate);
+		if (last < day) {
+			throw new IllegalArgumentException("Ends before it starts: " + endDate);
+		}
+		if (last == day && endMinute < startMinute) {
+			// DayEvents keeps each day sorted with a running latest end, which relies on this
+			throw new IllegalArgumentException("Ends before it starts: " + startTime + " - " + endTime);
+		}
+		if (last > day && endMinute == 0) {
+			// Ending at midnight is ending at 24:00 of the day before
+			last--;
+			this.endTime = "24:00";
+			this.endMinute = 1440;
+		}
+		this.endDay = last;
+		this.endDate = last > day ? DateKey.format(last) : null;
+	}
+
+	public String getTitle() {
+		return title;
 	}
-	
+
 	public String getDate() {
 		return date;
 	}
-	
+
+	/**
+	 * Gets the date as an epoch day, parsed once when the event was created
+	 * @return epoch day
+	 */
+	public int getDay() {
+		return day;
+	}
+
+	public String getStartTime() {
+		return startTime;
+	}
+
+	public String getEndTime() {
+		return endTime;
+	}
+
+	/**
+	 * Gets the date the event ends on
+	 * @return end date, the same as getDate() unless the event runs past midnight
+	 */
+	public String getEndDate() {
+		return endDate == null ? date : endDate;
+	}
+
+	/**
+	 * Gets the end date as an epoch day
+	 * @return epoch day
+	 */
+	public int getEndDay() {
+		return endDay;
+	}
+
+	/**
+	 * Checks whether the event runs past midnight into a later day
+	 * @return True for an overnight or multi-day event
+	 */
+	public boolean isSpanning() {
+		return endDay > day;
+	}
+
+	/**
+	 * Gets when the event starts, counted in minutes from the epoch
+	 * @return epoch minute
+	 */
+	public long getStartInstant() {
+		return day * 1440L + startMinute;
+	}
+
+	/**
+	 * Gets when the event ends, counted in minutes from the epoch
+	 * @return epoch minute
+	 */
+	public long getEndInstant() {
+		return endDay * 1440L + endMinute;
+	}
+
+	/**
+	 * Gets the minute the event starts within a day it covers
+	 * @param d Epoch day
+	 * @return minutes since midnight, 0 if it started on an earlier day
+	 */
+	public int getStartMinuteOn(int d) {
+		return d > day ? 0 : startMinute;
+	}
+
+	/**
+	 * Gets the minute the event ends within a day it covers
+	 * @param d Epoch day
+	 * @return minutes since midnight, 1440 if it goes on to a later day
+	 */
+	public int getEndMinuteOn(int d) {
+		return d < endDay ? 1440 : endMinute;
+	}
+
+	/**
+	 * Gets the starting time, parsed once when the event was created
+	 * @return minutes since midnight
+	 */
+	public int getStartMinute() {
+		return startMinute;
+	}
+
+	/**
+	 * Gets the ending time, parsed once when the event was created
+	 * @return minutes since midnight
+	 */
+	public int getEndMinute() {
+		return endMinute;
+	}
+
+	/**
+	 * Converts minutes since midnight to a time in the 24:00 format
+	 * @param minutes Minutes since midnight, up to 1440
+	 * @return time in the format of HH:MM
+	 */
+	public static String formatMinutes(int minutes) {
+		return (minutes < 600 ? "0" : "") + minutes / 60 + ":" + (minutes % 60 < 10 ? "0" : "") + minutes % 60;
+	}
+
+	/**
+	 * Converts a time in the 24:00 format to minutes since midnight
+	 * @param time Time in the format of H:MM or HH:MM, from 00:00 to 24:00
+	 * @return minutes since midnight
+	 * @throws IllegalArgumentException if it is not such a time
+	 */
+	public static int toMinutes(String time) {
+		int colon = time.indexOf(':');
+		if (colon < 1) {
+			throw new IllegalArgumentException("Not a HH:MM time: " + time);
+		}
+		int hours = 0, minutes = 0;
+		for (int i = 0; i < colon; i++) {
+			hours = hours * 10 + digit(time, i);
+		}
+		for (int i = colon + 1; i < time.length(); i++) {
+			minutes = minutes * 10 + digit(time, i);
+		}
+		if (colon > 2 || time.length() - colon != 3 || minutes >= 60 || hours * 60 + minutes > 1440) {
+			throw new IllegalArgumentException("Not a HH:MM time: " + time);
+		}
+		return hours * 60 + minutes;
+	}
+
+	private static int digit(String time, int i) {
+		char ch = time.charAt(i);
+		if (ch < '0' || ch > '9') {
+			throw new IllegalArgumentException("Not a HH:MM time: " + time);
+		}
+		return ch - '0';
+	}
+
+	/**
+	 * Events saved by older versions carry only the strings; parse the times again
+	 */
+	private Object readResolve() {
+		return new Event(title, date, startTime, endDate, endTime);
+	}
+
 	public String toString() {
 		if(endTime.equals("")) {
 			return startTime + ": " + title;
 		}
+		if (endDate != null) {
+			return startTime + " - " + endDate + " " + endTime + ": " + title;
+		}
 		return startTime + " - " + endTime + ": " + title;
 	}
 
@@ -0,0 +1,577 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Events keyed by epoch day.
+ * Days are kept in a sorted int array with a parallel array of DayEvents, so a lookup
+ * is a binary search with no key objects, and a date range is a contiguous run of slots.
+ *
+ * An index may be backed by a mapped snapshot (see EventStore). A month of the snapshot is
+ * read in the first time one of its days is touched; slots only cover months read so far,
+ * so call load(fromDay, toDay) before scanning slots over a range.
+ *
+ * Alongside the days the index keeps one occupancy mask per month, with bit (d - 1) set
+ * when day d of the month has events, updated whenever a day gains or loses its slot.
+ *
+ * Repeating events are kept apart as Recurrence rules and are not part of the slots or masks.
+ * So are events that run past midnight, which are kept in an IntervalTree by their start
+ * and end instants and are always in memory.
+ *
+ * snapshot() gives a frozen copy for saving in the background. It copies the slot arrays
+ * but shares the DayEvents; a shared day is copied the first time the live index changes it.
+ *
+ * titles() builds a TitleIndex over the events in memory the first time it is asked for;
+ * from then on every add and remove keeps it up to date, and so does every month read in
+ * from the snapshot. searchTitles() looks through the months not read in yet without
+ * reading them in.
+ */
+public class EventIndex implements Serializable {
+	private static final long serialVersionUID = 6880895574331019338L;
+
+	private int[] days = new int[16];
+	private DayEvents[] events = new DayEvents[16];
+	private int size;
+	private int eventCount;
+	private int[] maskMonths = new int[8];
+	private int[] masks = new int[8];
+	private int maskCount;
+	private ArrayList<Recurrence> recurrences = new ArrayList<Recurrence>();
+	private IntervalTree spans = new IntervalTree();
+	private transient volatile EventStore store;
+	private transient int generation;
+	private transient TitleIndex titles;
+
+	/**
+	 * Number of days that have events
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of events across all days
+	 * @return eventCount
+	 */
+	public int eventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Checks whether a day has any events
+	 * @param day Epoch day
+	 * @return True if the day has events
+	 */
+	public boolean contains(int day) {
+		load(day, day);
+		return Arrays.binarySearch(days, 0, size, day) >= 0;
+	}
+
+	/**
+	 * Gets the events of a day
+	 * @param day Epoch day
+	 * @return events of the day, or null if there are none
+	 */
+	public DayEvents get(int day) {
+		load(day, day);
+		int slot = Arrays.binarySearch(days, 0, size, day);
+		return slot >= 0 ? events[slot] : null;
+	}
+
+	/**
+	 * Adds an event to a day
+	 * @param day Epoch day
+	 * @param e Event
+	 */
+	public void add(int day, Event e) {
+		load(day, day);
+		addLoaded(day, e);
+		eventCount++;
+	}
+
+	/**
+	 * Adds a batch of events in one pass over the slots.
+	 * Days new to the index are merged in together rather than inserted one at a time.
+	 * @param batch Events sorted by day and then starting time; their days must be loaded
+	 */
+	public void addAll(List<Event> batch) {
+		int newDays = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			int day = batch.get(i).getDay();
+			if ((i == 0 || day != batch.get(i - 1).getDay()) && Arrays.binarySearch(days, 0, size, day) < 0) {
+				newDays++;
+			}
+		}
+		if (size + newDays > days.length) {
+			int capacity = Math.max(size + newDays, size * 2);
+			days = Arrays.copyOf(days, capacity);
+			events = Arrays.copyOf(events, capacity);
+		}
+		// Merge from the back so every existing slot moves at most once
+		int write = size + newDays;
+		int s = size - 1;
+		for (int i = batch.size() - 1; i >= 0;) {
+			int day = batch.get(i).getDay();
+			while (s >= 0 && days[s] > day) {
+				write--;
+				days[write] = days[s];
+				events[write] = events[s];
+				s--;
+			}
+			DayEvents target;
+			if (s >= 0 && days[s] == day) {
+				target = writable(s);
+				s--;
+			} else {
+				target = new DayEvents();
+				target.generation = generation;
+				updateMask(day, true);
+			}
+			write--;
+			days[write] = day;
+			events[write] = target;
+			int first = i;
+			while (first > 0 && batch.get(first - 1).getDay() == day) {
+				first--;
+			}
+			for (int j = first; j <= i; j++) {
+				target.add(batch.get(j));
+				if (titles != null) {
+					titles.add(batch.get(j));
+				}
+			}
+			i = first - 1;
+		}
+		size += newDays;
+		eventCount += batch.size();
+	}
+
+	/**
+	 * Adds an event read from the snapshot, which is already counted
+	 * @param day Epoch day
+	 * @param e Event
+	 */
+	void addLoaded(int day, Event e) {
+		int slot = Arrays.binarySearch(days, 0, size, day);
+		if (slot < 0) {
+			slot = -slot - 1;
+			insertSlot(slot, day);
+		}
+		writable(slot).add(e);
+		if (titles != null) {
+			titles.add(e);
+		}
+	}
+
+	/**
+	 * Removes one event from a day, and the day itself once it is empty
+	 * @param day Epoch day
+	 * @param i Position of the event in the day's list
+	 * @return removed event
+	 */
+	public Event removeAt(int day, int i) {
+		load(day, day);
+		int slot = Arrays.binarySearch(days, 0, size, day);
+		if (slot < 0) {
+			throw new IndexOutOfBoundsException("No events on day " + day);
+		}
+		DayEvents dayEvents = writable(slot);
+		Event removed = dayEvents.remove(i);
+		eventCount--;
+		if (titles != null) {
+			titles.remove(removed);
+		}
+		if (dayEvents.isEmpty()) {
+			remove(day);
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes a day and all of its events
+	 * @param day Epoch day
+	 * @return removed events, or null if the day had none
+	 */
+	public DayEvents remove(int day) {
+		load(day, day);
+		int slot = Arrays.binarySearch(days, 0, size, day);
+		if (slot < 0) {
+			return null;
+		}
+		DayEvents removed = events[slot];
+		System.arraycopy(days, slot + 1, days, slot, size - slot - 1);
+		System.arraycopy(events, slot + 1, events, slot, size - slot - 1);
+		size--;
+		events[size] = null;
+		eventCount -= removed.size();
+		updateMask(day, false);
+		if (titles != null) {
+			for (Event e : removed) {
+				titles.remove(e);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Gets the occupancy mask of a month
+	 * @param monthStart Epoch day of the 1st of the month
+	 * @return mask with bit (d - 1) set when day d has events
+	 */
+	public int monthMask(int monthStart) {
+		load(monthStart, monthStart + LocalDate.ofEpochDay(monthStart).lengthOfMonth() - 1);
+		int m = Arrays.binarySearch(maskMonths, 0, maskCount, monthStart);
+		return m >= 0 ? masks[m] : 0;
+	}
+
+	/**
+	 * Adds an event that runs past midnight
+	 * @param e Event
+	 */
+	public void addSpan(Event e) {
+		spans.add(e);
+		eventCount++;
+		if (titles != null) {
+			titles.add(e);
+		}
+	}
+
+	/**
+	 * Removes an event that runs past midnight, matched by identity
+	 * @param e Event
+	 * @return True if it was stored
+	 */
+	public boolean removeSpan(Event e) {
+		if (!spans.remove(e)) {
+			return false;
+		}
+		eventCount--;
+		if (titles != null) {
+			titles.remove(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the events that run past midnight
+	 * @return tree of events by start and end instant
+	 */
+	public IntervalTree getSpans() {
+		return spans;
+	}
+
+	/**
+	 * Gets the repeating events
+	 * @return recurrence rules
+	 */
+	public List<Recurrence> getRecurrences() {
+		return recurrences;
+	}
+
+	/**
+	 * Gets an identifier no rule uses yet
+	 * @return recurrence id
+	 */
+	public int nextRecurrenceId() {
+		int id = 0;
+		for (Recurrence r : recurrences) {
+			id = Math.max(id, r.getId() + 1);
+		}
+		return id;
+	}
+
+	/**
+	 * Adds a repeating event, or replaces the rule with the same id
+	 * @param r Recurrence rule
+	 */
+	public void putRecurrence(Recurrence r) {
+		for (int i = 0; i < recurrences.size(); i++) {
+			if (recurrences.get(i).getId() == r.getId()) {
+				recurrences.set(i, r);
+				return;
+			}
+		}
+		recurrences.add(r);
+	}
+
+	/**
+	 * Removes a repeating event
+	 * @param id Recurrence id
+	 * @return removed rule, or null if there was none
+	 */
+	public Recurrence removeRecurrence(int id) {
+		for (int i = 0; i < recurrences.size(); i++) {
+			if (recurrences.get(i).getId() == id) {
+				return recurrences.remove(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets a repeating event by id
+	 * @param id Recurrence id
+	 * @return rule, or null if there is none
+	 */
+	public Recurrence getRecurrence(int id) {
+		for (Recurrence r : recurrences) {
+			if (r.getId() == id) {
+				return r;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the index of event titles, building it on first use.
+	 * It covers the events in memory, not the months of the snapshot not read in yet.
+	 * @return title index over every event in memory
+	 */
+	public TitleIndex titles() {
+		if (titles == null) {
+			TitleIndex built = new TitleIndex();
+			for (int slot = 0; slot < size; slot++) {
+				for (Event e : events[slot]) {
+					built.add(e);
+				}
+			}
+			for (Event e : spans.toList()) {
+				built.add(e);
+			}
+			titles = built;
+		}
+		return titles;
+	}
+
+	/**
+	 * Finds the stored events whose title has a word starting with each of the terms,
+	 * both in memory and in the months of the snapshot not read in yet
+	 * @param terms Lower-cased words from TitleIndex.words
+	 * @return matching events, in no particular order
+	 */
+	public List<Event> searchTitles(List<String> terms) {
+		List<Event> found = titles().search(terms);
+		EventStore s = store;
+		if (s != null) {
+			s.searchUnloaded(terms, found);
+		}
+		return found;
+	}
+
+	/**
+	 * Checks whether the index of event titles has been built
+	 * @return True once titles() has been called
+	 */
+	public boolean hasTitles() {
+		return titles != null;
+	}
+
+	/**
+	 * Backs the index with a snapshot whose months are read in on demand
+	 * @param store Mapped snapshot
+	 */
+	public void attach(EventStore store) {
+		this.store = store;
+		eventCount += store.totalEvents();
+	}
+
+	/**
+	 * Backs the index with a newer snapshot of itself, so the file the current one maps
+	 * can be let go of. Should be called with no other thread using the index.
+	 * @param file Snapshot file written from a snapshot() of this index
+	 * @throws IOException
+	 */
+	public void reopen(File file) throws IOException {
+		EventStore s = store;
+		if (s != null) {
+			EventStore next = s.reopen(file);
+			store = next.isFullyLoaded() ? null : next;
+		}
+	}
+
+	/**
+	 * Gets the snapshot backing the index
+	 * @return store, or null once every month has been read in
+	 */
+	public EventStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Reads every month of the snapshot overlapping a range of days into the index
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 */
+	public void load(int fromDay, int toDay) {
+		if (store != null && store.load(fromDay, toDay, this) && store.isFullyLoaded()) {
+			store = null;
+		}
+	}
+
+	/**
+	 * Counts the events of each day in the months of the snapshot not read in yet
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @param counts Count for each day, index 0 for fromDay, added to
+	 */
+	public void countUnloaded(int fromDay, int toDay, int[] counts) {
+		EventStore s = store;
+		if (s != null) {
+			s.countUnloaded(fromDay, toDay, counts);
+		}
+	}
+
+	/**
+	 * Checks whether a range of days can be read without touching the snapshot.
+	 * Once this is true for a range it stays true, so readers may share the index.
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return True if load(fromDay, toDay) would do nothing
+	 */
+	public boolean isLoaded(int fromDay, int toDay) {
+		EventStore s = store;
+		return s == null || s.isLoaded(fromDay, toDay);
+	}
+
+	/**
+	 * Gets the earliest day that may have events, counting months not read in yet
+	 * @return epoch day, or Integer.MAX_VALUE if there are no events
+	 */
+	public int firstDay() {
+		EventStore s = store;
+		int first = size > 0 ? days[0] : Integer.MAX_VALUE;
+		if (spans.size() > 0) {
+			first = Math.min(first, (int) Math.floorDiv(spans.firstStart(), 1440));
+		}
+		return s == null ? first : Math.min(first, s.firstDay());
+	}
+
+	/**
+	 * Gets the latest day that may have events, counting months not read in yet
+	 * @return epoch day, or Integer.MIN_VALUE if there are no events
+	 */
+	public int lastDay() {
+		EventStore s = store;
+		int last = size > 0 ? days[size - 1] : Integer.MIN_VALUE;
+		if (spans.size() > 0) {
+			last = Math.max(last, (int) Math.floorDiv(spans.lastEnd() - 1, 1440));
+		}
+		return s == null ? last : Math.max(last, s.lastDay());
+	}
+
+	/**
+	 * Gets the first slot whose day is on or after the given day.
+	 * Slots from here up to size() are in ascending day order.
+	 * @param day Epoch day
+	 * @return slot
+	 */
+	public int ceilingSlot(int day) {
+		int slot = Arrays.binarySearch(days, 0, size, day);
+		return slot >= 0 ? slot : -slot - 1;
+	}
+
+	/**
+	 * Gets the day stored in a slot
+	 * @param slot Slot
+	 * @return epoch day
+	 */
+	public int dayAt(int slot) {
+		return days[slot];
+	}
+
+	/**
+	 * Gets the events stored in a slot
+	 * @param slot Slot
+	 * @return events of the day
+	 */
+	public DayEvents eventsAt(int slot) {
+		return events[slot];
+	}
+
+	/**
+	 * Gets a frozen copy of the index that later changes to this one do not affect.
+	 * Months of the snapshot not read in yet stay unread in the copy.
+	 * @return copy of the index
+	 */
+	public EventIndex snapshot() {
+		EventIndex copy = new EventIndex();
+		copy.days = Arrays.copyOf(days, Math.max(size, 1));
+		copy.events = Arrays.copyOf(events, Math.max(size, 1));
+		copy.size = size;
+		copy.eventCount = eventCount;
+		copy.maskMonths = Arrays.copyOf(maskMonths, maskMonths.length);
+		copy.masks = Arrays.copyOf(masks, masks.length);
+		copy.maskCount = maskCount;
+		copy.recurrences = new ArrayList<Recurrence>(recurrences);
+		copy.spans = spans.copy();
+		EventStore s = store;
+		copy.store = s == null ? null : s.snapshot();
+		// Every day is now shared with the copy until it is next changed here
+		generation++;
+		return copy;
+	}
+
+	/**
+	 * Gets the events of a slot for changing, first copying them if a snapshot shares them
+	 */
+	private DayEvents writable(int slot) {
+		DayEvents dayEvents = events[slot];
+		if (dayEvents.generation != generation) {
+			dayEvents = new DayEvents(dayEvents);
+			dayEvents.generation = generation;
+			events[slot] = dayEvents;
+		}
+		return dayEvents;
+	}
+
+	private void insertSlot(int slot, int day) {
+		if (size == days.length) {
+			days = Arrays.copyOf(days, size * 2);
+			events = Arrays.copyOf(events, size * 2);
+		}
+		System.arraycopy(days, slot, days, slot + 1, size - slot);
+		System.arraycopy(events, slot, events, slot + 1, size - slot);
+		days[slot] = day;
+		events[slot] = new DayEvents();
+		events[slot].generation = generation;
+		size++;
+		updateMask(day, true);
+	}
+
+	private void updateMask(int day, boolean occupied) {
+		int monthStart = DateKey.monthStart(day);
+		int bit = 1 << (day - monthStart);
+		int m = Arrays.binarySearch(maskMonths, 0, maskCount, monthStart);
+		if (m < 0) {
+			if (!occupied) {
+				return;
+			}
+			m = -m - 1;
+			if (maskCount == maskMonths.length) {
+				maskMonths = Arrays.copyOf(maskMonths, maskCount * 2);
+				masks = Arrays.copyOf(masks, maskCount * 2);
+			}
+			System.arraycopy(maskMonths, m, maskMonths, m + 1, maskCount - m);
+			System.arraycopy(masks, m, masks, m + 1, maskCount - m);
+			maskMonths[m] = monthStart;
+			masks[m] = 0;
+			maskCount++;
+		}
+		if (occupied) {
+			masks[m] |= bit;
+		} else {
+			masks[m] &= ~bit;
+		}
+	}
+}
@@ -0,0 +1,567 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-ahead journal for the event index.
+ * Every change is appended to the journal file as a small binary record. Once the journal
+ * outgrows the snapshot it is folded into a new snapshot and truncated, so the cost of
+ * saving follows the size of the change rather than the size of the calendar.
+ *
+ * The journal is written in numbered segments. rotate() renames the current segment to
+ * "events.journal.N" and starts a new one, so a snapshot can be written in the background
+ * while changes keep going to the new segment. Each snapshot records the last segment it
+ * includes; loading replays only later segments, so a crash at any point of a save
+ * neither loses nor repeats a change.
+ *
+ * Each change is forced to disk before the model goes on, so a change the user has seen
+ * survives a crash. A record cut short by a crash is dropped when the journal is loaded,
+ * and the segment is truncated back to its last complete record before anything new is
+ * appended to it.
+ *
+ * Snapshots are written in generations, "events.snapshot.N", and loading maps the newest.
+ * A new snapshot never replaces the file the live index has mapped, which some platforms
+ * do not allow; older generations are deleted once nothing needs them.
+ */
+public class EventJournal {
+
+	private static final int COMPACT_MIN_RECORDS = 1024;
+	private static final int SEGMENT_MAGIC = 0x434A524E;
+
+	private static final byte CREATE = 1;
+	private static final byte DELETE_DAY = 2;
+	private static final byte DELETE_EVENT = 3;
+	private static final byte PUT_RECURRENCE = 4;
+	private static final byte DELETE_RECURRENCE = 5;
+	private static final byte CREATE_SPAN = 6;
+	private static final byte DELETE_SPAN = 7;
+
+	private final File snapshotFile;
+	private final File journalFile;
+	/** Generation of the newest snapshot; 0 for a plain "events.snapshot" or none */
+	private int generation;
+	private DataOutputStream out;
+	private FileOutputStream file;
+	/** Length of the complete records of the file last replayed */
+	private long replayed;
+	private int records;
+	private int sequence;
+	private int counted;
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	/**
+	 * Constructor for the EventJournal
+	 * @param snapshotFile File holding the last compacted snapshot, and the prefix of later generations
+	 * @param journalFile File holding the changes made since the snapshot
+	 */
+	public EventJournal(File snapshotFile, File journalFile) {
+		this.snapshotFile = snapshotFile;
+		this.journalFile = journalFile;
+	}
+
+	/**
+	 * Maps the snapshot and replays the journal on top of it
+	 * @param index Index to load the events into
+	 * @return True if there was anything on disk
+	 * @throws IOException
+	 */
+	public boolean load(EventIndex index) throws IOException {
+		for (File f : numbered(snapshotFile)) {
+			generation = Math.max(generation, fileNumber(snapshotFile, f));
+		}
+		File snapshot = snapshotFile(generation);
+		boolean found = EventStore.open(snapshot, index);
+		int covered = EventStore.journalSequence(snapshot);
+		deleteOlderSnapshots();
+		int last = covered;
+		for (File segment : segments()) {
+			if (segmentNumber(segment) > covered) {
+				replay(segment, index, covered);
+				found = true;
+			}
+			last = Math.max(last, segmentNumber(segment));
+		}
+		sequence = last + 1;
+		if (journalFile.length() == 0) {
+			journalFile.delete();
+		} else {
+			int n = replay(journalFile, index, covered);
+			if (n > covered) {
+				sequence = n;
+				found = true;
+				if (replayed < journalFile.length()) {
+					// Appending after a torn record would make the next replay misread everything after it
+					try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+						channel.truncate(replayed);
+					}
+				}
+			} else {
+				// Already folded into the snapshot by a save that stopped before deleting it
+				journalFile.delete();
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Records a created event
+	 * @param day Epoch day of the event
+	 * @param e Event, which may run past midnight
+	 * @throws IOException
+	 */
+	public void logCreate(int day, Event e) throws IOException {
+		DataOutputStream o = open();
+		writeCreate(o, day, e);
+		commit();
+	}
+
+	/**
+	 * Records a batch of created events with a single flush
+	 * @param events Created events
+	 * @throws IOException
+	 */
+	public void logCreates(List<Event> events) throws IOException {
+		if (events.isEmpty()) {
+			return;
+		}
+		DataOutputStream o = open();
+		for (Event e : events) {
+			writeCreate(o, e.getDay(), e);
+		}
+		sync();
+		records += events.size();
+	}
+
+	/**
+	 * Records that every event of a day was deleted
+	 * @param day Epoch day
+	 * @throws IOException
+	 */
+	public void logDeleteDay(int day) throws IOException {
+		DataOutputStream o = open();
+		o.writeByte(DELETE_DAY);
+		o.writeInt(day);
+		commit();
+	}
+
+	/**
+	 * Records that one event was deleted
+	 * @param day Epoch day of the event
+	 * @param e Deleted event
+	 * @throws IOException
+	 */
+	public void logDeleteEvent(int day, Event e) throws IOException {
+		DataOutputStream o = open();
+		o.writeByte(e.isSpanning() ? DELETE_SPAN : DELETE_EVENT);
+		o.writeInt(day);
+		if (e.isSpanning()) {
+			o.writeInt(e.getEndDay());
+		}
+		writeEvent(o, e);
+		commit();
+	}
+
+	/**
+	 * Records a new or changed repeating event
+	 * @param r Recurrence rule
+	 * @throws IOException
+	 */
+	public void logRecurrence(Recurrence r) throws IOException {
+		DataOutputStream o = open();
+		o.writeByte(PUT_RECURRENCE);
+		o.writeInt(r.getStartDay());
+		r.writeTo(o);
+		commit();
+	}
+
+	/**
+	 * Records that a repeating event was removed
+	 * @param r Removed recurrence rule
+	 * @throws IOException
+	 */
+	public void logDeleteRecurrence(Recurrence r) throws IOException {
+		DataOutputStream o = open();
+		o.writeByte(DELETE_RECURRENCE);
+		o.writeInt(r.getStartDay());
+		o.writeInt(r.getId());
+		commit();
+	}
+
+	/**
+	 * Checks whether the journal has grown enough to be worth compacting
+	 * @param eventCount Number of events in the index
+	 * @return True if compact() should be called
+	 */
+	public boolean needsCompaction(int eventCount) {
+		return records >= COMPACT_MIN_RECORDS && records >= eventCount;
+	}
+
+	/**
+	 * Checks whether anything was journaled since the last snapshot was started
+	 * @return True if there are records to save
+	 */
+	public boolean hasRecords() {
+		return records > 0;
+	}
+
+	/**
+	 * Writes the index to a new snapshot and truncates the journal
+	 * @param index Index to write
+	 * @return the snapshot file written
+	 * @throws IOException
+	 */
+	public File compact(EventIndex index) throws IOException {
+		return writeSnapshot(index, rotate());
+	}
+
+	/**
+	 * Ends the current segment and starts a new one.
+	 * Called together with EventIndex.snapshot(), so the snapshot holds exactly the
+	 * changes up to the end of the segment.
+	 * @return sequence number of the ended segment, to pass to writeSnapshot
+	 * @throws IOException
+	 */
+	public int rotate() throws IOException {
+		close();
+		int ended = sequence;
+		if (journalFile.exists()) {
+			Files.move(journalFile.toPath(), segmentFile(ended).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		sequence++;
+		records = 0;
+		return ended;
+	}
+
+	/**
+	 * Writes a snapshot as the next generation and deletes the segments it includes.
+	 * Does not touch the current segment, so changes may be journaled at the same time.
+	 * The live index keeps the previous generation mapped until it is switched over with
+	 * EventIndex.reopen(); that file is deleted by a later save or load.
+	 * @param index Index to write, usually a snapshot() of the live index
+	 * @param ended Last segment the index includes, from rotate()
+	 * @return the snapshot file written
+	 * @throws IOException
+	 */
+	public File writeSnapshot(EventIndex index, int ended) throws IOException {
+		File written = snapshotFile(generation + 1);
+		File temp = new File(written.getPath() + ".tmp");
+		EventStore.write(temp, index, index.getStore(), ended);
+		bytesWritten.addAndGet(temp.length());
+		Files.move(temp.toPath(), written.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		generation++;
+		for (File segment : segments()) {
+			if (segmentNumber(segment) <= ended) {
+				segment.delete();
+			}
+		}
+		deleteOlderSnapshots();
+		return written;
+	}
+
+	/**
+	 * Deletes snapshots older than the newest, leaving any a platform will not delete
+	 * while it is still mapped for a later try
+	 */
+	private void deleteOlderSnapshots() {
+		for (File f : numbered(snapshotFile)) {
+			if (fileNumber(snapshotFile, f) < generation) {
+				f.delete();
+			}
+		}
+	}
+
+	private File snapshotFile(int n) {
+		return n == 0 ? snapshotFile : new File(snapshotFile.getPath() + "." + n);
+	}
+
+	/**
+	 * Closes the journal file; the next record reopens it
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+			file = null;
+		}
+	}
+
+	private DataOutputStream open() throws IOException {
+		if (out == null) {
+			boolean fresh = journalFile.length() == 0;
+			file = new FileOutputStream(journalFile, true);
+			out = new DataOutputStream(new BufferedOutputStream(file));
+			counted = 0;
+			if (fresh) {
+				out.writeInt(SEGMENT_MAGIC);
+				out.writeInt(sequence);
+			}
+		}
+		return out;
+	}
+
+	private File segmentFile(int n) {
+		return new File(journalFile.getPath() + "." + n);
+	}
+
+	/**
+	 * Ended segments waiting to be folded into a snapshot, oldest first
+	 */
+	private List<File> segments() {
+		ArrayList<File> segments = new ArrayList<File>();
+		for (File f : numbered(journalFile)) {
+			if (segmentNumber(f) >= 0) {
+				segments.add(f);
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Files named after a base file with a number appended, and the base file itself if it
+	 * exists, lowest number first with the base file as 0
+	 */
+	private static List<File> numbered(final File base) {
+		ArrayList<File> numbered = new ArrayList<File>();
+		File[] files = base.getAbsoluteFile().getParentFile().listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (fileNumber(base, f) >= 0) {
+					numbered.add(f);
+				}
+			}
+		}
+		Collections.sort(numbered, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				return Integer.compare(fileNumber(base, f1), fileNumber(base, f2));
+			}
+		});
+		return numbered;
+	}
+
+	/**
+	 * Number of an ended segment file, or -1 for any other file
+	 */
+	private int segmentNumber(File f) {
+		return f.getName().equals(journalFile.getName()) ? -1 : fileNumber(journalFile, f);
+	}
+
+	/**
+	 * Number appended to a base file's name, 0 for the base file, or -1 for any other file
+	 */
+	private static int fileNumber(File base, File f) {
+		String name = f.getName();
+		if (name.equals(base.getName())) {
+			return 0;
+		}
+		String prefix = base.getName() + ".";
+		if (!name.startsWith(prefix) || name.length() == prefix.length() || name.length() - prefix.length() > 9) {
+			return -1;
+		}
+		for (int i = prefix.length(); i < name.length(); i++) {
+			if (name.charAt(i) < '0' || name.charAt(i) > '9') {
+				return -1;
+			}
+		}
+		return Integer.parseInt(name.substring(prefix.length()));
+	}
+
+	private void commit() throws IOException {
+		sync();
+		records++;
+	}
+
+	/**
+	 * Flushes what has been written and forces it to disk
+	 */
+	private void sync() throws IOException {
+		out.flush();
+		file.getChannel().force(false);
+		countWritten();
+	}
+
+	private void countWritten() {
+		bytesWritten.addAndGet(out.size() - counted);
+		counted = out.size();
+	}
+
+	/**
+	 * Bytes written to journal segments and snapshots since the journal was opened
+	 * @return bytes written
+	 */
+	public long bytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * Applies the records of a segment to the index, unless the snapshot already includes it
+	 * @return sequence number of the segment; journals written before segments count as 0
+	 */
+	private int replay(File file, EventIndex index, int covered) throws IOException {
+		int n = 0;
+		replayed = 0;
+		CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try (DataInputStream in = new DataInputStream(counter)) {
+			in.mark(8);
+			if (in.readInt() == SEGMENT_MAGIC) {
+				n = in.readInt();
+			} else {
+				in.reset();
+			}
+			if (n <= covered) {
+				return n;
+			}
+			replayed = counter.count;
+			while (true) {
+				int op = in.read();
+				if (op < 0) {
+					break;
+				}
+				int day = in.readInt();
+				if (op == CREATE) {
+					index.add(day, readEvent(in, day));
+				} else if (op == DELETE_DAY) {
+					index.remove(day);
+				} else if (op == DELETE_EVENT) {
+					removeEvent(index, day, readEvent(in, day));
+				} else if (op == PUT_RECURRENCE) {
+					index.putRecurrence(Recurrence.readFrom(in));
+				} else if (op == DELETE_RECURRENCE) {
+					index.removeRecurrence(in.readInt());
+				} else if (op == CREATE_SPAN) {
+					index.addSpan(readSpan(in, day));
+				} else if (op == DELETE_SPAN) {
+					removeSpan(index, readSpan(in, day));
+				} else {
+					throw new IOException("Unknown journal record " + op);
+				}
+				records++;
+				replayed = counter.count;
+			}
+		} catch (EOFException eof) {
+			// A record cut short by a crash; everything before it has been applied
+		}
+		return n;
+	}
+
+	private static void removeEvent(EventIndex index, int day, Event removed) {
+		DayEvents listOfEvent = index.get(day);
+		if (listOfEvent == null) {
+			return;
+		}
+		for (int i = 0; i < listOfEvent.size(); i++) {
+			if (listOfEvent.get(i).toString().equals(removed.toString())) {
+				index.removeAt(day, i);
+				return;
+			}
+		}
+	}
+
+	private static void removeSpan(EventIndex index, Event removed) {
+		ArrayList<Event> starting = new ArrayList<Event>();
+		index.getSpans().startingBetween(removed.getStartInstant(), removed.getStartInstant() + 1, starting);
+		for (Event e : starting) {
+			if (e.toString().equals(removed.toString())) {
+				index.removeSpan(e);
+				return;
+			}
+		}
+	}
+
+	private static void writeCreate(DataOutputStream o, int day, Event e) throws IOException {
+		o.writeByte(e.isSpanning() ? CREATE_SPAN : CREATE);
+		o.writeInt(day);
+		if (e.isSpanning()) {
+			o.writeInt(e.getEndDay());
+		}
+		writeEvent(o, e);
+	}
+
+	private static Event readSpan(DataInputStream in, int day) throws IOException {
+		int endDay = in.readInt();
+		String title = in.readUTF();
+		String startTime = in.readUTF();
+		String endTime = in.readUTF();
+		return new Event(title, DateKey.format(day), startTime, DateKey.format(endDay), endTime);
+	}
+
+	private static void writeEvent(DataOutputStream o, Event e) throws IOException {
+		o.writeUTF(e.getTitle());
+		o.writeUTF(e.getStartTime());
+		o.writeUTF(e.getEndTime());
+	}
+
+	private static Event readEvent(DataInputStream in, int day) throws IOException {
+		String title = in.readUTF();
+		String startTime = in.readUTF();
+		String endTime = in.readUTF();
+		return new Event(title, DateKey.format(day), startTime, endTime);
+	}
+
+	/**
+	 * Counts the bytes read through it, so replay knows where the last complete record ends
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		long count;
+		private long marked;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		public void mark(int limit) {
+			in.mark(limit);
+			marked = count;
+		}
+
+		public void reset() throws IOException {
+			in.reset();
+			count = marked;
+		}
+	}
+}
@@ -0,0 +1,456 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Month-partitioned snapshot of the event index, read through a memory-mapped file.
+ *
+ * The file starts with a header, holds one block per month that has events, then the
+ * recurrence rules and the events that run past midnight, and ends with an offset table of (first day, end day, event count,
+ * offset, length) per month. The header also records the last journal segment the
+ * snapshot includes (see EventJournal). Strings are stored as an int byte count followed
+ * by their UTF-8 bytes.
+ * Opening a snapshot only reads the table; a month's events become Event objects the
+ * first time something asks for a day in that month.
+ */
+public class EventStore {
+
+	private static final int MAGIC = 0x43414C50;
+	private static final int HEADER_SIZE = 28;
+	private static final int ENTRY_SIZE = 20;
+
+	private final MappedByteBuffer buffer;
+	private final int[] firstDays;
+	private final int[] endDays;
+	private final int[] counts;
+	private final int[] offsets;
+	private final int[] lengths;
+	private final boolean[] loaded;
+	private final int totalEvents;
+	private int unloaded;
+
+	private EventStore(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+		int months = buffer.getInt(4);
+		totalEvents = buffer.getInt(8);
+		int table = buffer.getInt(12);
+		firstDays = new int[months];
+		endDays = new int[months];
+		counts = new int[months];
+		offsets = new int[months];
+		lengths = new int[months];
+		loaded = new boolean[months];
+		for (int i = 0; i < months; i++) {
+			int entry = table + i * ENTRY_SIZE;
+			firstDays[i] = buffer.getInt(entry);
+			endDays[i] = buffer.getInt(entry + 4);
+			counts[i] = buffer.getInt(entry + 8);
+			offsets[i] = buffer.getInt(entry + 12);
+			lengths[i] = buffer.getInt(entry + 16);
+		}
+		unloaded = months;
+	}
+
+	private EventStore(EventStore other) {
+		buffer = other.buffer;
+		firstDays = other.firstDays;
+		endDays = other.endDays;
+		counts = other.counts;
+		offsets = other.offsets;
+		lengths = other.lengths;
+		loaded = other.loaded.clone();
+		totalEvents = other.totalEvents;
+		unloaded = other.unloaded;
+	}
+
+	/**
+	 * Maps a snapshot file and attaches it to an index.
+	 * @param file Snapshot file
+	 * @param index Index the snapshot belongs to
+	 * @return True if the file existed
+	 * @throws IOException
+	 */
+	public static boolean open(File file, EventIndex index) throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		MappedByteBuffer buffer = map(file);
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an event snapshot: " + file);
+		}
+		index.attach(new EventStore(buffer));
+		readRules(buffer, index);
+		return true;
+	}
+
+	/**
+	 * Maps a newer snapshot written from this store's index, to back the index in place of
+	 * this one. A month of the new file still needs reading in only if it was copied over
+	 * from a month of this store that has not been read in yet; every other month holds
+	 * events the index already has.
+	 * @param file Snapshot file written by write() with this store as the previous snapshot
+	 * @return store for the new file
+	 * @throws IOException
+	 */
+	public EventStore reopen(File file) throws IOException {
+		MappedByteBuffer mapped = map(file);
+		if (mapped.getInt(0) != MAGIC) {
+			throw new IOException("Not an event snapshot: " + file);
+		}
+		EventStore next = new EventStore(mapped);
+		for (int i = 0; i < next.firstDays.length; i++) {
+			int j = monthAtOrAfter(next.firstDays[i]);
+			if (j == firstDays.length || firstDays[j] != next.firstDays[i] || loaded[j]) {
+				next.loaded[i] = true;
+				next.unloaded--;
+			}
+		}
+		return next;
+	}
+
+	private static MappedByteBuffer map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+	}
+
+	/**
+	 * Reads which journal segment a snapshot file includes
+	 * @param file Snapshot file
+	 * @return sequence number of the last journal segment folded into the snapshot,
+	 *         or -1 if there is no snapshot or it does not say
+	 * @throws IOException
+	 */
+	public static int journalSequence(File file) throws IOException {
+		if (!file.exists()) {
+			return -1;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			if (in.readInt() != MAGIC) {
+				return -1;
+			}
+			in.skipBytes(20);
+			return in.readInt();
+		}
+	}
+
+	/**
+	 * Gets a copy of the store that keeps which months were loaded at this moment.
+	 * The copy shares the mapped file, and is only meant to be written out by write().
+	 * @return store
+	 */
+	public EventStore snapshot() {
+		return new EventStore(this);
+	}
+
+	/**
+	 * Number of events stored in the snapshot
+	 * @return totalEvents
+	 */
+	public int totalEvents() {
+		return totalEvents;
+	}
+
+	/**
+	 * Gets the first day of the first month in the snapshot
+	 * @return epoch day, or Integer.MAX_VALUE if the snapshot is empty
+	 */
+	public int firstDay() {
+		return firstDays.length > 0 ? firstDays[0] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the last day of the last month in the snapshot
+	 * @return epoch day, or Integer.MIN_VALUE if the snapshot is empty
+	 */
+	public int lastDay() {
+		return endDays.length > 0 ? endDays[endDays.length - 1] - 1 : Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Checks whether every month has been read into the index
+	 * @return True if nothing is left to load
+	 */
+	public boolean isFullyLoaded() {
+		return unloaded == 0;
+	}
+
+	/**
+	 * Reads every not yet loaded month overlapping a range of days into the index
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @param index Index to read into
+	 * @return True if any month was read
+	 */
+	public boolean load(int fromDay, int toDay, EventIndex index) {
+		boolean read = false;
+		for (int i = monthAtOrAfter(fromDay); i < firstDays.length && firstDays[i] <= toDay; i++) {
+			if (!loaded[i]) {
+				readMonth(i, index);
+				read = true;
+			}
+		}
+		return read;
+	}
+
+	/**
+	 * Checks whether every month overlapping a range of days has been read in
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @return True if reading the range would not change the index
+	 */
+	public boolean isLoaded(int fromDay, int toDay) {
+		for (int i = monthAtOrAfter(fromDay); i < firstDays.length && firstDays[i] <= toDay; i++) {
+			if (!loaded[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the events of each day in the months not read in yet, skipping over the text
+	 * of the events rather than making Event objects of them
+	 * @param fromDay First epoch day, inclusive
+	 * @param toDay Last epoch day, inclusive
+	 * @param counts Count for each day, index 0 for fromDay, added to
+	 */
+	public void countUnloaded(int fromDay, int toDay, int[] counts) {
+		for (int i = monthAtOrAfter(fromDay); i < firstDays.length && firstDays[i] <= toDay; i++) {
+			if (loaded[i]) {
+				continue;
+			}
+			ByteBuffer in = buffer.duplicate();
+			in.position(offsets[i]);
+			int days = in.getInt();
+			for (int d = 0; d < days; d++) {
+				int day = in.getInt();
+				int n = in.getInt();
+				if (day >= fromDay && day <= toDay) {
+					counts[day - fromDay] += n;
+				}
+				for (int j = 0; j < 3 * n; j++) {
+					int length = in.getInt();
+					in.position(in.position() + length);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the events of the months not read in yet whose title has a word starting with
+	 * each of the terms. Titles are read straight from the snapshot, and only matching
+	 * events become Event objects; the months stay unread.
+	 * @param terms Lower-cased words from TitleIndex.words
+	 * @param found Matching events, added to
+	 */
+	public void searchUnloaded(List<String> terms, List<Event> found) {
+		for (int i = 0; i < firstDays.length; i++) {
+			if (loaded[i]) {
+				continue;
+			}
+			ByteBuffer in = buffer.duplicate();
+			in.position(offsets[i]);
+			int days = in.getInt();
+			for (int d = 0; d < days; d++) {
+				int day = in.getInt();
+				int n = in.getInt();
+				for (int j = 0; j < n; j++) {
+					String title = readString(in);
+					if (TitleIndex.matches(title, terms)) {
+						found.add(new Event(title, DateKey.format(day), readString(in), readString(in)));
+					} else {
+						for (int k = 0; k < 2; k++) {
+							int length = in.getInt();
+							in.position(in.position() + length);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes an index to a snapshot file.
+	 * Months that were never loaded from the previous snapshot are copied over as raw bytes.
+	 * @param file Snapshot file to write
+	 * @param index Index to write
+	 * @param previous Snapshot the index was loaded from, or null
+	 * @param journalSequence Last journal segment the index includes
+	 * @throws IOException
+	 */
+	public static void write(File file, EventIndex index, EventStore previous, int journalSequence) throws IOException {
+		ArrayList<int[]> table = new ArrayList<>();
+		int total = 0;
+		try (DataOutputStream o = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			o.write(new byte[HEADER_SIZE]);
+			int p = 0;
+			int s = 0;
+			int previousMonths = previous == null ? 0 : previous.firstDays.length;
+			while (true) {
+				while (p < previousMonths && previous.loaded[p]) {
+					p++;
+				}
+				boolean fromPrevious = p < previousMonths;
+				boolean fromIndex = s < index.size();
+				if (!fromPrevious && !fromIndex) {
+					break;
+				}
+				int offset = o.size();
+				if (fromPrevious && (!fromIndex || previous.firstDays[p] < index.dayAt(s))) {
+					byte[] block = new byte[previous.lengths[p]];
+					ByteBuffer source = previous.buffer.duplicate();
+					source.position(previous.offsets[p]);
+					source.get(block);
+					o.write(block);
+					table.add(new int[] { previous.firstDays[p], previous.endDays[p], previous.counts[p], offset, block.length });
+					total += previous.counts[p];
+					p++;
+				} else {
+					LocalDate d = LocalDate.ofEpochDay(index.dayAt(s));
+					int firstDay = index.dayAt(s) - d.getDayOfMonth() + 1;
+					int endDay = firstDay + d.lengthOfMonth();
+					int end = index.ceilingSlot(endDay);
+					int count = 0;
+					o.writeInt(end - s);
+					for (; s < end; s++) {
+						DayEvents listOfEvent = index.eventsAt(s);
+						o.writeInt(index.dayAt(s));
+						o.writeInt(listOfEvent.size());
+						for (Event e : listOfEvent) {
+							writeString(o, e.getTitle());
+							writeString(o, e.getStartTime());
+							writeString(o, e.getEndTime());
+						}
+						count += listOfEvent.size();
+					}
+					table.add(new int[] { firstDay, endDay, count, offset, o.size() - offset });
+					total += count;
+				}
+			}
+			int rulesOffset = o.size();
+			for (Recurrence r : index.getRecurrences()) {
+				r.writeTo(o);
+			}
+			List<Event> spans = index.getSpans().toList();
+			o.writeInt(spans.size());
+			for (Event e : spans) {
+				o.writeInt(e.getDay());
+				o.writeInt(e.getEndDay());
+				writeString(o, e.getTitle());
+				writeString(o, e.getStartTime());
+				writeString(o, e.getEndTime());
+			}
+			int tableOffset = o.size();
+			for (int[] entry : table) {
+				for (int field : entry) {
+					o.writeInt(field);
+				}
+			}
+			o.flush();
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.writeInt(MAGIC);
+				raf.writeInt(table.size());
+				raf.writeInt(total);
+				raf.writeInt(tableOffset);
+				raf.writeInt(rulesOffset);
+				raf.writeInt(index.getRecurrences().size());
+				raf.writeInt(journalSequence);
+			}
+		}
+	}
+
+	private int monthAtOrAfter(int day) {
+		int lo = 0, hi = firstDays.length - 1;
+		int found = firstDays.length;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (endDays[mid] > day) {
+				found = mid;
+				hi = mid - 1;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return found;
+	}
+
+	private void readMonth(int i, EventIndex index) {
+		loaded[i] = true;
+		unloaded--;
+		ByteBuffer in = buffer.duplicate();
+		in.position(offsets[i]);
+		int days = in.getInt();
+		for (int d = 0; d < days; d++) {
+			int day = in.getInt();
+			int n = in.getInt();
+			String date = DateKey.format(day);
+			for (int j = 0; j < n; j++) {
+				String title = readString(in);
+				String startTime = readString(in);
+				String endTime = readString(in);
+				index.addLoaded(day, new Event(title, date, startTime, endTime));
+			}
+		}
+	}
+
+	private static void readRules(MappedByteBuffer buffer, EventIndex index) throws IOException {
+		int rulesOffset = buffer.getInt(16);
+		int rules = buffer.getInt(20);
+		byte[] bytes = new byte[buffer.getInt(12) - rulesOffset];
+		ByteBuffer source = buffer.duplicate();
+		source.position(rulesOffset);
+		source.get(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		for (int i = 0; i < rules; i++) {
+			index.putRecurrence(Recurrence.readFrom(in));
+		}
+		int spans = in.readInt();
+		for (int i = 0; i < spans; i++) {
+			int day = in.readInt();
+			int endDay = in.readInt();
+			String title = readString(in);
+			String startTime = readString(in);
+			String endTime = readString(in);
+			index.addSpan(new Event(title, DateKey.format(day), startTime, DateKey.format(endDay), endTime));
+		}
+	}
+
+	private static void writeString(DataOutputStream o, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		o.writeInt(bytes.length);
+		o.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
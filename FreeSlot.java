@@ -0,0 +1,51 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+/**
+ * A stretch of free time on one day, as found by CalendarModel.findFreeSlots.
+ */
+public final class FreeSlot {
+
+	private final int day;
+	private final int startMinute;
+	private final int endMinute;
+
+	/**
+	 * Constructor for the FreeSlot
+	 * @param day Epoch day
+	 * @param startMinute First free minute
+	 * @param endMinute Minute the free time ends, exclusive
+	 */
+	public FreeSlot(int day, int startMinute, int endMinute) {
+		this.day = day;
+		this.startMinute = startMinute;
+		this.endMinute = endMinute;
+	}
+
+	public int getDay() {
+		return day;
+	}
+
+	public int getStartMinute() {
+		return startMinute;
+	}
+
+	public int getEndMinute() {
+		return endMinute;
+	}
+
+	/**
+	 * Length of the free time
+	 * @return minutes
+	 */
+	public int getMinutes() {
+		return endMinute - startMinute;
+	}
+
+	public String toString() {
+		return DateKey.format(day) + " " + Event.formatMinutes(startMinute) + " - " + Event.formatMinutes(endMinute);
+	}
+}
@@ -0,0 +1,426 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams events between a CalendarModel and iCalendar (.ics) text.
+ *
+ * Import reads one line at a time and keeps only the VEVENT being parsed and the current
+ * batch in memory. Each full batch of events and repeating events goes to
+ * CalendarModel.createEvents, which checks a day for conflicts once per batch and creates the
+ * batch as one change; events that conflict are skipped. Each batch notifies the model's
+ * listeners once; only batches made before the Event Dispatch Thread gets to a notification
+ * are merged into it, so a long import reaches listeners as several changes.
+ * Export walks the calendar a month at a time, so it never copies the whole index either.
+ *
+ * Events have times of day. A timed event ending on a later day keeps its end date and runs
+ * past midnight, and an all-day event runs from "00:00" to "24:00". Repeating events
+ * are kept when the RRULE is a plain FREQ/INTERVAL/COUNT/UNTIL rule; other rules keep just
+ * their first occurrence.
+ */
+public class ICalendar {
+
+	private static final int BATCH_SIZE = 4096;
+	private static final int FOLD_OCTETS = 75;
+	private static final String MIDNIGHT = "24:00";
+
+	private final CalendarModel model;
+	private int read;
+	private int imported;
+
+	/**
+	 * Constructor for the ICalendar
+	 * @param model Model to import into or export from
+	 */
+	public ICalendar(CalendarModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Number of events read by the last import
+	 * @return events read
+	 */
+	public int getRead() {
+		return read;
+	}
+
+	/**
+	 * Number of events the last import added to the calendar
+	 * @return events imported
+	 */
+	public int getImported() {
+		return imported;
+	}
+
+	/**
+	 * Imports every VEVENT of an iCalendar stream
+	 * @param in iCalendar text
+	 * @return number of events imported
+	 * @throws IOException
+	 */
+	public int importFrom(Reader in) throws IOException {
+		read = 0;
+		imported = 0;
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		ArrayList<Event> batch = new ArrayList<Event>(BATCH_SIZE);
+		ArrayList<Recurrence> rules = new ArrayList<Recurrence>();
+		VEvent event = null;
+		String line = reader.readLine();
+		while (line != null) {
+			// Unfold continuation lines, which start with a space or a tab
+			StringBuilder unfolded = null;
+			String next = reader.readLine();
+			while (next != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+				if (unfolded == null) {
+					unfolded = new StringBuilder(line);
+				}
+				unfolded.append(next, 1, next.length());
+				next = reader.readLine();
+			}
+			if (unfolded != null) {
+				line = unfolded.toString();
+			}
+			if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+				event = new VEvent();
+			} else if (line.equalsIgnoreCase("END:VEVENT")) {
+				if (event != null && event.start != null) {
+					read++;
+					addEvent(event, batch, rules);
+					if (batch.size() + rules.size() >= BATCH_SIZE) {
+						imported += model.createEvents(batch, rules);
+						batch.clear();
+						rules.clear();
+					}
+				}
+				event = null;
+			} else if (event != null) {
+				event.property(line);
+			}
+			line = next;
+		}
+		imported += model.createEvents(batch, rules);
+		return imported;
+	}
+
+	/**
+	 * Imports an .ics file
+	 * @param file iCalendar file, in UTF-8
+	 * @return number of events imported
+	 * @throws IOException
+	 */
+	public int importFile(File file) throws IOException {
+		try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			return importFrom(in);
+		}
+	}
+
+	/**
+	 * Exports the calendar to an .ics file
+	 * @param file iCalendar file to write, in UTF-8
+	 * @return number of VEVENTs written
+	 * @throws IOException
+	 */
+	public int exportFile(File file) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			return exportTo(out);
+		}
+	}
+
+	/**
+	 * Exports every stored and repeating event as an iCalendar stream
+	 * @param out Receives the iCalendar text
+	 * @return number of VEVENTs written
+	 * @throws IOException
+	 */
+	public int exportTo(Writer out) throws IOException {
+		String stamp = formatDateTime(LocalDateTime.now(ZoneOffset.UTC)) + "Z";
+		int written = 0;
+		out.write("BEGIN:VCALENDAR\r\n");
+		out.write("VERSION:2.0\r\n");
+		out.write("PRODID:-//Michelle Luong//Simple GUI Calendar//EN\r\n");
+		int[] range = model.getEventDayRange();
+		if (range[0] <= range[1]) {
+			LocalDate month = LocalDate.ofEpochDay(range[0]).withDayOfMonth(1);
+			for (int first = (int) month.toEpochDay(); first <= range[1]; first = (int) month.toEpochDay()) {
+				month = month.plusMonths(1);
+				int previousDay = Integer.MIN_VALUE;
+				int n = 0;
+				for (Event e : model.getStoredEventsBetween(first, (int) month.toEpochDay() - 1)) {
+					n = e.getDay() == previousDay ? n + 1 : 0;
+					previousDay = e.getDay();
+					writeEvent(out, e, e.getDay() + "-" + n, stamp, null);
+					written++;
+				}
+			}
+		}
+		for (Recurrence r : model.getRecurrences()) {
+			writeEvent(out, r.getTemplate(), "rule-" + r.getId(), stamp, r);
+			written++;
+		}
+		out.write("END:VCALENDAR\r\n");
+		out.flush();
+		return written;
+	}
+
+	private void addEvent(VEvent v, List<Event> batch, List<Recurrence> rules) {
+		int day = (int) v.start.toLocalDate().toEpochDay();
+		String startTime = v.allDay ? "00:00" : Event.formatMinutes(v.start.getHour() * 60 + v.start.getMinute());
+		String endTime;
+		String endDate = null;
+		LocalDateTime end = v.end;
+		if (end == null && v.duration != null) {
+			end = v.start.plus(v.duration);
+		}
+		if (end == null) {
+			endTime = v.allDay ? MIDNIGHT : "";
+		} else if (end.toLocalDate().toEpochDay() > day) {
+			// A repeating event keeps to one day; anything else may run on past midnight.
+			// An end at midnight, as for all-day events, becomes 24:00 of the day before.
+			if (v.frequency != null) {
+				endTime = MIDNIGHT;
+			} else {
+				endTime = Event.formatMinutes(end.getHour() * 60 + end.getMinute());
+				endDate = DateKey.format((int) end.toLocalDate().toEpochDay());
+			}
+		} else {
+			endTime = Event.formatMinutes(Math.max(end.getHour() * 60 + end.getMinute(), Event.toMinutes(startTime)));
+		}
+		String title = v.summary == null ? "" : v.summary;
+		if (v.frequency != null) {
+			int[] exceptions = new int[v.exceptions.size()];
+			for (int i = 0; i < exceptions.length; i++) {
+				exceptions[i] = v.exceptions.get(i);
+			}
+			// The model gives the rule its id when it creates it
+			Event template = new Event(title, DateKey.format(day), startTime, endTime);
+			rules.add(new Recurrence(0, v.frequency, v.interval, day, v.untilDay, v.count, exceptions, template));
+		} else {
+			batch.add(new Event(title, DateKey.format(day), startTime, endDate, endTime));
+		}
+	}
+
+	private static void writeEvent(Writer out, Event e, String uid, String stamp, Recurrence r) throws IOException {
+		int day = r == null ? e.getDay() : r.getStartDay();
+		out.write("BEGIN:VEVENT\r\n");
+		out.write("UID:" + uid + "@simple-gui-calendar\r\n");
+		out.write("DTSTAMP:" + stamp + "\r\n");
+		out.write("DTSTART:" + formatDateTime(day, e.getStartMinute()) + "\r\n");
+		if (!e.getEndTime().isEmpty()) {
+			out.write("DTEND:" + formatDateTime(day + e.getEndDay() - e.getDay(), e.getEndMinute()) + "\r\n");
+		}
+		writeFolded(out, "SUMMARY:" + escape(e.getTitle()));
+		if (r != null) {
+			StringBuilder rule = new StringBuilder("RRULE:FREQ=").append(r.getFrequency());
+			if (r.getInterval() != 1) {
+				rule.append(";INTERVAL=").append(r.getInterval());
+			}
+			if (r.getUntilDay() != Recurrence.FOREVER) {
+				rule.append(";UNTIL=").append(formatDate(r.getUntilDay()));
+			}
+			out.write(rule.append("\r\n").toString());
+			for (int exception : r.getExceptions()) {
+				out.write("EXDATE:" + formatDateTime(exception, e.getStartMinute()) + "\r\n");
+			}
+		}
+		out.write("END:VEVENT\r\n");
+	}
+
+	/**
+	 * Writes a content line, folding it so no line is longer than 75 octets
+	 */
+	private static void writeFolded(Writer out, String line) throws IOException {
+		int octets = 0;
+		int from = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			int size = ch < 0x80 ? 1 : ch < 0x800 ? 2 : Character.isHighSurrogate(ch) ? 4 : Character.isLowSurrogate(ch) ? 0 : 3;
+			if (octets + size > FOLD_OCTETS && size > 0) {
+				out.write(line, from, i - from);
+				out.write("\r\n ");
+				from = i;
+				octets = 1;
+			}
+			octets += size;
+		}
+		out.write(line, from, line.length() - from);
+		out.write("\r\n");
+	}
+
+	private static String escape(String text) {
+		StringBuilder builder = null;
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if (ch == '\\' || ch == ';' || ch == ',' || ch == '\n') {
+				if (builder == null) {
+					builder = new StringBuilder(text.length() + 8).append(text, 0, i);
+				}
+				builder.append('\\').append(ch == '\n' ? 'n' : ch);
+			} else if (builder != null) {
+				builder.append(ch);
+			}
+		}
+		return builder == null ? text : builder.toString();
+	}
+
+	private static String unescape(String text) {
+		if (text.indexOf('\\') < 0) {
+			return text;
+		}
+		StringBuilder builder = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if (ch == '\\' && i + 1 < text.length()) {
+				ch = text.charAt(++i);
+				builder.append(ch == 'n' || ch == 'N' ? '\n' : ch);
+			} else {
+				builder.append(ch);
+			}
+		}
+		return builder.toString();
+	}
+
+	private static String formatDate(int day) {
+		LocalDate date = LocalDate.ofEpochDay(day);
+		int value = date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+		return Integer.toString(value);
+	}
+
+	private static String formatDateTime(int day, int minutes) {
+		if (minutes >= 24 * 60) {
+			day++;
+			minutes -= 24 * 60;
+		}
+		return formatDate(day) + "T" + Event.formatMinutes(minutes).replace(":", "") + "00";
+	}
+
+	private static String formatDateTime(LocalDateTime time) {
+		return formatDateTime((int) time.toLocalDate().toEpochDay(), time.getHour() * 60 + time.getMinute());
+	}
+
+	/**
+	 * Parses DATE (YYYYMMDD) and DATE-TIME (YYYYMMDDTHHMMSS, optionally ending in Z) values.
+	 * UTC times are moved to the local time zone; other times are taken as local.
+	 */
+	private static LocalDateTime parseDateTime(String value) {
+		int year = Integer.parseInt(value.substring(0, 4));
+		int month = Integer.parseInt(value.substring(4, 6));
+		int dayOfMonth = Integer.parseInt(value.substring(6, 8));
+		if (value.length() < 15) {
+			return LocalDateTime.of(year, month, dayOfMonth, 0, 0);
+		}
+		LocalDateTime time = LocalDateTime.of(year, month, dayOfMonth,
+				Integer.parseInt(value.substring(9, 11)), Integer.parseInt(value.substring(11, 13)));
+		if (value.endsWith("Z")) {
+			time = time.atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+		}
+		return time;
+	}
+
+	/**
+	 * The properties of the VEVENT being read
+	 */
+	private static class VEvent {
+		String summary;
+		LocalDateTime start;
+		LocalDateTime end;
+		Duration duration;
+		boolean allDay;
+		Recurrence.Frequency frequency;
+		int interval = 1;
+		int untilDay = Recurrence.FOREVER;
+		int count;
+		ArrayList<Integer> exceptions = new ArrayList<Integer>();
+
+		void property(String line) {
+			int colon = valueStart(line);
+			if (colon < 0) {
+				return;
+			}
+			int semicolon = line.indexOf(';');
+			String name = line.substring(0, semicolon >= 0 && semicolon < colon ? semicolon : colon).toUpperCase();
+			String params = semicolon >= 0 && semicolon < colon ? line.substring(semicolon, colon).toUpperCase() : "";
+			String value = line.substring(colon + 1).trim();
+			try {
+				if (name.equals("SUMMARY")) {
+					summary = unescape(value);
+				} else if (name.equals("DTSTART")) {
+					start = parseDateTime(value);
+					allDay = params.contains("VALUE=DATE") && !params.contains("VALUE=DATE-TIME") || value.length() == 8;
+				} else if (name.equals("DTEND")) {
+					end = parseDateTime(value);
+				} else if (name.equals("DURATION")) {
+					duration = Duration.parse(value);
+				} else if (name.equals("RRULE")) {
+					rule(value.toUpperCase());
+				} else if (name.equals("EXDATE")) {
+					for (String date : value.split(",")) {
+						exceptions.add((int) parseDateTime(date).toLocalDate().toEpochDay());
+					}
+				}
+			} catch (RuntimeException ex) {
+				// A value this calendar cannot represent; leave the property out
+			}
+		}
+
+		private void rule(String value) {
+			Recurrence.Frequency parsed = null;
+			boolean simple = true;
+			for (String part : value.split(";")) {
+				int eq = part.indexOf('=');
+				String key = eq < 0 ? part : part.substring(0, eq);
+				String v = eq < 0 ? "" : part.substring(eq + 1);
+				if (key.equals("FREQ")) {
+					parsed = Arrays.asList("DAILY", "WEEKLY", "MONTHLY", "YEARLY").contains(v) ? Recurrence.Frequency.valueOf(v) : null;
+				} else if (key.equals("INTERVAL")) {
+					interval = Math.max(1, Integer.parseInt(v));
+				} else if (key.equals("COUNT")) {
+					// Longer counts keep the first MAX_COUNT occurrences
+					count = Math.max(0, Math.min(Integer.parseInt(v), Recurrence.MAX_COUNT));
+				} else if (key.equals("UNTIL")) {
+					untilDay = (int) parseDateTime(v).toLocalDate().toEpochDay();
+				} else if (!key.equals("WKST")) {
+					simple = false;
+				}
+			}
+			frequency = simple ? parsed : null;
+		}
+
+		/**
+		 * Position of the colon ending the name and parameters; colons inside quoted parameter values do not count
+		 */
+		private static int valueStart(String line) {
+			boolean quoted = false;
+			for (int i = 0; i < line.length(); i++) {
+				char ch = line.charAt(i);
+				if (ch == '"') {
+					quoted = !quoted;
+				} else if (ch == ':' && !quoted) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,313 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Events that run past midnight, kept in a balanced tree ordered by starting instant.
+ * Every node also holds the latest end instant in its subtree, so a search for events
+ * overlapping a range skips any subtree that ends before the range starts, and costs
+ * O(log n + k) for k events found. Instants are minutes from the epoch (see Event).
+ *
+ * The tree is an AVL tree; events starting at the same minute are ordered by insertion.
+ */
+public class IntervalTree implements Serializable {
+	private static final long serialVersionUID = -3747555214189397727L;
+
+	private Node root;
+	private int size;
+	private long nextSeq;
+
+	/**
+	 * Number of events in the tree
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets when the earliest event starts
+	 * @return epoch minute, or Long.MAX_VALUE if the tree is empty
+	 */
+	public long firstStart() {
+		Node node = root;
+		if (node == null) {
+			return Long.MAX_VALUE;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node.start;
+	}
+
+	/**
+	 * Gets when the last event to end ends
+	 * @return epoch minute, exclusive, or Long.MIN_VALUE if the tree is empty
+	 */
+	public long lastEnd() {
+		return root == null ? Long.MIN_VALUE : root.maxEnd;
+	}
+
+	/**
+	 * Adds an event
+	 * @param e Event
+	 */
+	public void add(Event e) {
+		root = insert(root, new Node(e, nextSeq++));
+		size++;
+	}
+
+	/**
+	 * Removes an event, matched by identity
+	 * @param e Event
+	 * @return True if it was in the tree
+	 */
+	public boolean remove(Event e) {
+		Node node = find(root, e);
+		if (node == null) {
+			return false;
+		}
+		root = delete(root, node.start, node.seq);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Finds the events overlapping a range
+	 * @param from First epoch minute, inclusive
+	 * @param to Last epoch minute, exclusive
+	 * @param out Receives the events in starting order
+	 */
+	public void overlapping(long from, long to, List<Event> out) {
+		overlapping(root, from, to, out);
+	}
+
+	/**
+	 * Finds an event overlapping a range, if there is one
+	 * @param from First epoch minute, inclusive
+	 * @param to Last epoch minute, exclusive
+	 * @return an overlapping event, or null if none overlaps
+	 */
+	public Event firstOverlapping(long from, long to) {
+		Node node = root;
+		// If the left subtree ends after the range starts but has no overlap, nothing to the right does either
+		while (node != null && (node.start >= to || node.end <= from)) {
+			node = node.left != null && node.left.maxEnd > from ? node.left : node.right;
+		}
+		return node == null ? null : node.event;
+	}
+
+	/**
+	 * Finds the events starting within a range
+	 * @param from First epoch minute, inclusive
+	 * @param to Last epoch minute, exclusive
+	 * @param out Receives the events in starting order
+	 */
+	public void startingBetween(long from, long to, List<Event> out) {
+		startingBetween(root, from, to, out);
+	}
+
+	/**
+	 * Gets every event in starting order
+	 * @return events
+	 */
+	public List<Event> toList() {
+		ArrayList<Event> events = new ArrayList<Event>(size);
+		startingBetween(root, Long.MIN_VALUE, Long.MAX_VALUE, events);
+		return events;
+	}
+
+	/**
+	 * Gets a copy that later changes to this tree do not affect
+	 * @return copy of the tree
+	 */
+	public IntervalTree copy() {
+		IntervalTree copy = new IntervalTree();
+		for (Event e : toList()) {
+			copy.add(e);
+		}
+		return copy;
+	}
+
+	private static void overlapping(Node node, long from, long to, List<Event> out) {
+		if (node == null || node.maxEnd <= from) {
+			return;
+		}
+		overlapping(node.left, from, to, out);
+		if (node.start >= to) {
+			return;
+		}
+		if (node.end > from) {
+			out.add(node.event);
+		}
+		overlapping(node.right, from, to, out);
+	}
+
+	private static void startingBetween(Node node, long from, long to, List<Event> out) {
+		if (node == null) {
+			return;
+		}
+		if (node.start >= from) {
+			startingBetween(node.left, from, to, out);
+		}
+		if (node.start >= from && node.start < to) {
+			out.add(node.event);
+		}
+		if (node.start < to) {
+			startingBetween(node.right, from, to, out);
+		}
+	}
+
+	private static Node find(Node node, Event e) {
+		long start = e.getStartInstant();
+		while (node != null) {
+			if (start < node.start) {
+				node = node.left;
+			} else if (start > node.start) {
+				node = node.right;
+			} else {
+				// Events starting together may sit on either side after rotations
+				return findSameStart(node, e);
+			}
+		}
+		return null;
+	}
+
+	private static Node findSameStart(Node node, Event e) {
+		if (node == null || node.start != e.getStartInstant()) {
+			return node == null ? null : find(node, e);
+		}
+		if (node.event == e) {
+			return node;
+		}
+		Node found = findSameStart(node.left, e);
+		return found != null ? found : findSameStart(node.right, e);
+	}
+
+	private static int compare(long start1, long seq1, long start2, long seq2) {
+		return start1 != start2 ? Long.compare(start1, start2) : Long.compare(seq1, seq2);
+	}
+
+	private static Node insert(Node node, Node added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added.start, added.seq, node.start, node.seq) < 0) {
+			node.left = insert(node.left, added);
+		} else {
+			node.right = insert(node.right, added);
+		}
+		return balance(node);
+	}
+
+	private static Node delete(Node node, long start, long seq) {
+		int c = compare(start, seq, node.start, node.seq);
+		if (c < 0) {
+			node.left = delete(node.left, start, seq);
+		} else if (c > 0) {
+			node.right = delete(node.right, start, seq);
+		} else {
+			if (node.left == null) {
+				return node.right;
+			}
+			if (node.right == null) {
+				return node.left;
+			}
+			Node successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = deleteFirst(node.right);
+			successor.left = node.left;
+			node = successor;
+		}
+		return balance(node);
+	}
+
+	private static Node deleteFirst(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = deleteFirst(node.left);
+		return balance(node);
+	}
+
+	private static int height(Node node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static void update(Node node) {
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+		long maxEnd = node.end;
+		if (node.left != null) {
+			maxEnd = Math.max(maxEnd, node.left.maxEnd);
+		}
+		if (node.right != null) {
+			maxEnd = Math.max(maxEnd, node.right.maxEnd);
+		}
+		node.maxEnd = maxEnd;
+	}
+
+	private static Node balance(Node node) {
+		update(node);
+		int lean = height(node.left) - height(node.right);
+		if (lean > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (lean < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private static Node rotateRight(Node node) {
+		Node top = node.left;
+		node.left = top.right;
+		top.right = node;
+		update(node);
+		update(top);
+		return top;
+	}
+
+	private static Node rotateLeft(Node node) {
+		Node top = node.right;
+		node.right = top.left;
+		top.left = node;
+		update(node);
+		update(top);
+		return top;
+	}
+
+	private static class Node implements Serializable {
+		private static final long serialVersionUID = -6177550704724742200L;
+
+		final Event event;
+		final long start;
+		final long end;
+		final long seq;
+		long maxEnd;
+		int height = 1;
+		Node left;
+		Node right;
+
+		Node(Event event, long seq) {
+			this.event = event;
+			this.start = event.getStartInstant();
+			this.end = Math.max(event.getEndInstant(), start + 1);
+			this.seq = seq;
+			this.maxEnd = end;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times of one operation, for CalendarMetrics.
+ * Times go into power-of-two buckets of nanoseconds, so recording is a few atomic adds and
+ * a percentile is accurate to within a factor of two. Safe to record from any thread.
+ */
+public class LatencyHistogram {
+
+	private final AtomicLongArray buckets = new AtomicLongArray(64);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Records an operation started at a time from CalendarMetrics.start()
+	 * @param started System.nanoTime() at the start, or 0 when metrics were off
+	 */
+	public void record(long started) {
+		if (started == 0) {
+			return;
+		}
+		long nanos = Math.max(1, System.nanoTime() - started);
+		buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos));
+		count.increment();
+		totalNanos.add(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMeanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+	}
+
+	public double getP50Millis() {
+		return percentileMillis(0.50);
+	}
+
+	public double getP99Millis() {
+		return percentileMillis(0.99);
+	}
+
+	public double getMaxMillis() {
+		return maxNanos.get() / 1e6;
+	}
+
+	/**
+	 * Estimates a percentile as the upper bound of the bucket it falls in
+	 * @param fraction Percentile as a fraction, such as 0.99
+	 * @return milliseconds, or 0 if nothing was recorded
+	 */
+	public double percentileMillis(double fraction) {
+		long[] counts = new long[buckets.length()];
+		long n = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			n += counts[i];
+		}
+		long rank = (long) Math.ceil(n * fraction);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				return Math.min((double) (2L << Math.min(i, 62)), maxNanos.get()) / 1e6;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Forgets everything recorded so far
+	 */
+	public void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+	}
+
+	public String toString() {
+		return String.format("n=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+				getCount(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+	}
+}
@@ -0,0 +1,191 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import javax.swing.JComponent;
+
+/**
+ * Month view painted as a single component: a row of weekday names over 6 x 7 day cells.
+ * Changing the month only swaps the layout and repaints; no child components are made,
+ * and clicks are mapped to a day of the month from their position.
+ */
+@SuppressWarnings("serial")
+public class MonthGrid extends JComponent {
+
+	private static final int CELL_WIDTH = 48;
+	private static final int CELL_HEIGHT = 28;
+	private static final int HEADER_HEIGHT = 20;
+	private static final int ROWS = 6;
+	private static final String[] WEEKDAYS = { "S", "M", "T", "W", "T", "F", "S" };
+	private static final String[] NUMBERS = new String[32];
+	private static final Stroke SELECTED_STROKE = new BasicStroke(2);
+
+	static {
+		for (int i = 1; i < NUMBERS.length; i++) {
+			NUMBERS[i] = Integer.toString(i);
+		}
+	}
+
+	/**
+	 * Notified when a day cell is clicked
+	 */
+	public interface DayListener {
+		void daySelected(int day);
+	}
+
+	private MonthLayout layout;
+	private int eventMask;
+	private int selectedDay;
+	private final ArrayList<DayListener> listeners = new ArrayList<DayListener>();
+
+	/**
+	 * Constructor for the MonthGrid
+	 * @param layout Month to show first
+	 */
+	public MonthGrid(MonthLayout layout) {
+		this.layout = layout;
+		setPreferredSize(new Dimension(CELL_WIDTH * 7 + 1, HEADER_HEIGHT + CELL_HEIGHT * ROWS + 1));
+		setOpaque(true);
+		addMouseListener(new MouseAdapter() {
+			public void mousePressed(MouseEvent e) {
+				int day = dayAt(e.getX(), e.getY());
+				if (day > 0) {
+					for (DayListener l : listeners) {
+						l.daySelected(day);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Attaches a DayListener
+	 * @param l DayListener
+	 */
+	public void addDayListener(DayListener l) {
+		listeners.add(l);
+	}
+
+	/**
+	 * Shows another month with no day selected
+	 * @param layout Month to show
+	 * @param eventMask Days of the month that have events
+	 */
+	public void setMonth(MonthLayout layout, int eventMask) {
+		this.layout = layout;
+		this.eventMask = eventMask;
+		selectedDay = 0;
+		repaint();
+	}
+
+	/**
+	 * Recolours the days that have events, repainting only the cells that changed
+	 * @param eventMask Mask with bit (d - 1) set when day d has events
+	 */
+	public void setEventMask(int eventMask) {
+		int changed = this.eventMask ^ eventMask;
+		this.eventMask = eventMask;
+		for (int d = 1; changed != 0; d++, changed >>>= 1) {
+			if ((changed & 1) != 0) {
+				repaintDay(d);
+			}
+		}
+	}
+
+	/**
+	 * Moves the selection outline
+	 * @param day Day of the month, or 0 for none
+	 */
+	public void setSelectedDay(int day) {
+		if (day == selectedDay) {
+			return;
+		}
+		repaintDay(selectedDay);
+		selectedDay = day;
+		repaintDay(selectedDay);
+	}
+
+	/**
+	 * Maps a point to the day of the month under it
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return day of the month, or 0 for the header and blank cells
+	 */
+	public int dayAt(int x, int y) {
+		if (x < 0 || y < HEADER_HEIGHT) {
+			return 0;
+		}
+		int column = x / CELL_WIDTH;
+		int row = (y - HEADER_HEIGHT) / CELL_HEIGHT;
+		if (column >= 7 || row >= ROWS) {
+			return 0;
+		}
+		int day = row * 7 + column - layout.getLeadingBlanks() + 1;
+		return day >= 1 && day <= layout.getLength() ? day : 0;
+	}
+
+	protected void paintComponent(Graphics g) {
+		g.setColor(getBackground());
+		g.fillRect(0, 0, getWidth(), getHeight());
+		FontMetrics metrics = g.getFontMetrics();
+		int baseline = (HEADER_HEIGHT + metrics.getAscent() - metrics.getDescent()) / 2;
+		g.setColor(Color.BLACK);
+		for (int column = 0; column < 7; column++) {
+			int x = column * CELL_WIDTH + (CELL_WIDTH - metrics.stringWidth(WEEKDAYS[column])) / 2;
+			g.drawString(WEEKDAYS[column], x, baseline);
+		}
+		for (int cell = 0; cell < ROWS * 7; cell++) {
+			int x = cell % 7 * CELL_WIDTH;
+			int y = HEADER_HEIGHT + cell / 7 * CELL_HEIGHT;
+			if (!g.hitClip(x, y, CELL_WIDTH + 1, CELL_HEIGHT + 1)) {
+				continue;
+			}
+			int day = cell - layout.getLeadingBlanks() + 1;
+			if (day < 1 || day > layout.getLength()) {
+				g.setColor(Color.LIGHT_GRAY);
+				g.fillRect(x, y, CELL_WIDTH, CELL_HEIGHT);
+			} else {
+				paintDay(g, metrics, day, x, y);
+			}
+			g.setColor(Color.GRAY);
+			g.drawRect(x, y, CELL_WIDTH, CELL_HEIGHT);
+		}
+	}
+
+	private void paintDay(Graphics g, FontMetrics metrics, int day, int x, int y) {
+		g.setColor((eventMask & (1 << (day - 1))) != 0 ? Color.YELLOW : Color.WHITE);
+		g.fillRect(x, y, CELL_WIDTH, CELL_HEIGHT);
+		g.setColor(Color.BLACK);
+		String label = NUMBERS[day];
+		g.drawString(label, x + (CELL_WIDTH - metrics.stringWidth(label)) / 2,
+				y + (CELL_HEIGHT + metrics.getAscent() - metrics.getDescent()) / 2);
+		if (day == selectedDay) {
+			Graphics2D g2 = (Graphics2D) g;
+			Stroke stroke = g2.getStroke();
+			g2.setColor(Color.BLUE);
+			g2.setStroke(SELECTED_STROKE);
+			g2.drawRect(x + 2, y + 2, CELL_WIDTH - 4, CELL_HEIGHT - 4);
+			g2.setStroke(stroke);
+		}
+	}
+
+	private void repaintDay(int day) {
+		if (day < 1 || day > layout.getLength()) {
+			return;
+		}
+		int cell = day - 1 + layout.getLeadingBlanks();
+		repaint(cell % 7 * CELL_WIDTH, HEADER_HEIGHT + cell / 7 * CELL_HEIGHT, CELL_WIDTH + 1, CELL_HEIGHT + 1);
+	}
+}
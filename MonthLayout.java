@@ -0,0 +1,113 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.Serializable;
+import java.time.YearMonth;
+
+/**
+ * Immutable layout of one month: where it starts in the week, how long it is,
+ * and how many blank cells come before the 1st in a Sunday-first grid.
+ */
+public final class MonthLayout implements Serializable {
+	private static final long serialVersionUID = 1238491394900871259L;
+
+	private final YearMonth yearMonth;
+	private final int firstDay;
+	private final int length;
+	private final int firstWeekday;
+
+	private MonthLayout(YearMonth yearMonth) {
+		this.yearMonth = yearMonth;
+		firstDay = (int) yearMonth.atDay(1).toEpochDay();
+		length = yearMonth.lengthOfMonth();
+		// Epoch day 0 (1/1/1970) was a Thursday, the 5th day of a Sunday-first week
+		firstWeekday = Math.floorMod(firstDay + 4, 7) + 1;
+	}
+
+	/**
+	 * Gets the layout of a month
+	 * @param yearMonth Month
+	 * @return layout
+	 */
+	public static MonthLayout of(YearMonth yearMonth) {
+		return new MonthLayout(yearMonth);
+	}
+
+	/**
+	 * Gets the month
+	 * @return yearMonth
+	 */
+	public YearMonth getYearMonth() {
+		return yearMonth;
+	}
+
+	/**
+	 * Gets the year
+	 * @return year
+	 */
+	public int getYear() {
+		return yearMonth.getYear();
+	}
+
+	/**
+	 * Gets the month of the year
+	 * @return month (1-12)
+	 */
+	public int getMonth() {
+		return yearMonth.getMonthValue();
+	}
+
+	/**
+	 * Gets the number of days in the month
+	 * @return length
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the epoch day of the 1st of the month
+	 * @return firstDay
+	 */
+	public int getFirstDay() {
+		return firstDay;
+	}
+
+	/**
+	 * Gets the epoch day of a day of the month
+	 * @param dayOfMonth Day of the month
+	 * @return epoch day
+	 */
+	public int getEpochDay(int dayOfMonth) {
+		return firstDay + dayOfMonth - 1;
+	}
+
+	/**
+	 * Gets the number of blank cells before the 1st in a Sunday-first grid
+	 * @return leading blanks (0-6)
+	 */
+	public int getLeadingBlanks() {
+		return firstWeekday - 1;
+	}
+
+	/**
+	 * Gets the day of the week of a day of the month
+	 * @param dayOfMonth Day of the month
+	 * @return Day of the week (1-7, Sunday is 1)
+	 */
+	public int getDayOfWeek(int dayOfMonth) {
+		return (firstWeekday - 1 + dayOfMonth - 1) % 7 + 1;
+	}
+
+	/**
+	 * Checks whether the month contains an epoch day
+	 * @param day Epoch day
+	 * @return True if the day falls in this month
+	 */
+	public boolean contains(int day) {
+		return day >= firstDay && day < firstDay + length;
+	}
+}
@@ -0,0 +1,249 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * A repeating event, stored once as a rule.
+ * Occurrences are never stored; they are worked out for whatever days a query asks about.
+ * A count limit is turned into the day of the last occurrence when the rule is made,
+ * so every check after that is a bounds test plus a little arithmetic.
+ */
+public final class Recurrence implements Serializable {
+	private static final long serialVersionUID = -1070036710522588186L;
+
+	public enum Frequency {
+		DAILY, WEEKLY, MONTHLY, YEARLY
+	}
+
+	/** Until day of a rule that repeats forever */
+	public static final int FOREVER = Integer.MAX_VALUE;
+	/** Most occurrences a rule with a count may have */
+	public static final int MAX_COUNT = 10000;
+
+	private final int id;
+	private final Frequency frequency;
+	private final int interval;
+	private final int startDay;
+	private final int untilDay;
+	private final int[] exceptions;
+	private final Event template;
+
+	/**
+	 * Constructor for the Recurrence
+	 * @param id Identifier of the rule within its calendar
+	 * @param frequency How often the event repeats
+	 * @param interval Number of periods between occurrences (1 for every period)
+	 * @param startDay Epoch day of the first occurrence
+	 * @param untilDay Last epoch day an occurrence may fall on, or FOREVER
+	 * @param count Maximum number of occurrences, up to MAX_COUNT, or 0 for no limit
+	 * @param exceptions Epoch days whose occurrence is cancelled
+	 * @param template Title and times shared by every occurrence
+	 */
+	public Recurrence(int id, Frequency frequency, int interval, int startDay, int untilDay, int count, int[] exceptions, Event template) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Interval must be at least 1: " + interval);
+		}
+		if (count < 0 || count > MAX_COUNT) {
+			throw new IllegalArgumentException("Count must be from 0 to " + MAX_COUNT + ": " + count);
+		}
+		this.id = id;
+		this.frequency = frequency;
+		this.interval = interval;
+		this.startDay = startDay;
+		this.exceptions = exceptions.clone();
+		Arrays.sort(this.exceptions);
+		this.template = template;
+		this.untilDay = count > 0 ? Math.min(untilDay, dayOfOccurrence(count - 1)) : untilDay;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public Frequency getFrequency() {
+		return frequency;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	public int getStartDay() {
+		return startDay;
+	}
+
+	public int getUntilDay() {
+		return untilDay;
+	}
+
+	public int[] getExceptions() {
+		return exceptions.clone();
+	}
+
+	public Event getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Gets a copy of the rule with one more cancelled day
+	 * @param day Epoch day to cancel
+	 * @return new rule
+	 */
+	public Recurrence withException(int day) {
+		int[] more = Arrays.copyOf(exceptions, exceptions.length + 1);
+		more[exceptions.length] = day;
+		return new Recurrence(id, frequency, interval, startDay, untilDay, 0, more, template);
+	}
+
+	/**
+	 * Checks whether the event occurs on a day
+	 * @param day Epoch day
+	 * @return True if there is an occurrence on the day
+	 */
+	public boolean occursOn(int day) {
+		if (day < startDay || day > untilDay || Arrays.binarySearch(exceptions, day) >= 0) {
+			return false;
+		}
+		switch (frequency) {
+		case DAILY:
+			return (day - startDay) % interval == 0;
+		case WEEKLY:
+			return (day - startDay) % (7 * interval) == 0;
+		default:
+			return patternDayOnOrAfter(day) == day;
+		}
+	}
+
+	/**
+	 * Gets the first occurrence on or after a day
+	 * @param day Epoch day
+	 * @return epoch day of the occurrence, or FOREVER if there is none
+	 */
+	public int nextOccurrence(int day) {
+		int candidate = patternDayOnOrAfter(Math.max(day, startDay));
+		while (candidate <= untilDay && Arrays.binarySearch(exceptions, candidate) >= 0) {
+			candidate = patternDayOnOrAfter(candidate + 1);
+		}
+		return candidate <= untilDay ? candidate : FOREVER;
+	}
+
+	/**
+	 * Gets the occurrence for a day as an Event; only meant for display
+	 * @param day Epoch day of an occurrence
+	 * @return event
+	 */
+	public Event occurrence(int day) {
+		return new Event(template.getTitle(), DateKey.format(day), template.getStartTime(), template.getEndTime());
+	}
+
+	/**
+	 * Checks whether the rule's times overlap a time range
+	 * @param start Starting minute, inclusive
+	 * @param end Ending minute, exclusive
+	 * @return True if an occurrence would overlap the range
+	 */
+	public boolean overlaps(int start, int end) {
+		int s = template.getStartMinute(), e = template.getEndMinute();
+		return s < Math.max(end, start + 1) && e > start;
+	}
+
+	/**
+	 * Writes the rule in the binary form used by the journal and the snapshot
+	 * @param out Output
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(id);
+		out.writeByte(frequency.ordinal());
+		out.writeInt(interval);
+		out.writeInt(startDay);
+		out.writeInt(untilDay);
+		out.writeInt(exceptions.length);
+		for (int day : exceptions) {
+			out.writeInt(day);
+		}
+		out.writeUTF(template.getTitle());
+		out.writeUTF(template.getStartTime());
+		out.writeUTF(template.getEndTime());
+	}
+
+	/**
+	 * Reads a rule written by writeTo
+	 * @param in Input
+	 * @return rule
+	 * @throws IOException
+	 */
+	public static Recurrence readFrom(DataInput in) throws IOException {
+		int id = in.readInt();
+		Frequency frequency = Frequency.values()[in.readByte()];
+		int interval = in.readInt();
+		int startDay = in.readInt();
+		int untilDay = in.readInt();
+		int[] exceptions = new int[in.readInt()];
+		for (int i = 0; i < exceptions.length; i++) {
+			exceptions[i] = in.readInt();
+		}
+		Event template = new Event(in.readUTF(), DateKey.format(startDay), in.readUTF(), in.readUTF());
+		return new Recurrence(id, frequency, interval, startDay, untilDay, 0, exceptions, template);
+	}
+
+	/**
+	 * Day of the n-th occurrence of the pattern, ignoring exceptions and the until day
+	 */
+	private int dayOfOccurrence(int n) {
+		switch (frequency) {
+		case DAILY:
+			return (int) Math.min(FOREVER, startDay + (long) n * interval);
+		case WEEKLY:
+			return (int) Math.min(FOREVER, startDay + (long) n * 7 * interval);
+		default:
+			int day = startDay;
+			for (int i = 0; i < n; i++) {
+				day = patternDayOnOrAfter(day + 1);
+			}
+			return day;
+		}
+	}
+
+	/**
+	 * First day on or after a day (and not before the start) that fits the pattern.
+	 * Monthly and yearly rules skip months too short for the starting day of the month.
+	 */
+	private int patternDayOnOrAfter(int day) {
+		if (day <= startDay) {
+			return startDay;
+		}
+		if (frequency == Frequency.DAILY || frequency == Frequency.WEEKLY) {
+			int step = frequency == Frequency.DAILY ? interval : 7 * interval;
+			return startDay + ((day - startDay + step - 1) / step) * step;
+		}
+		LocalDate start = LocalDate.ofEpochDay(startDay);
+		LocalDate first = start.withDayOfMonth(1);
+		LocalDate date = LocalDate.ofEpochDay(day);
+		long periods = frequency == Frequency.MONTHLY
+				? ChronoUnit.MONTHS.between(first, date.withDayOfMonth(1)) / interval
+				: (date.getYear() - start.getYear()) / interval;
+		while (true) {
+			LocalDate month = frequency == Frequency.MONTHLY
+					? first.plusMonths(periods * interval)
+					: first.plusYears(periods * interval);
+			if (start.getDayOfMonth() <= month.lengthOfMonth()) {
+				int candidate = (int) month.withDayOfMonth(start.getDayOfMonth()).toEpochDay();
+				if (candidate >= day) {
+					return candidate;
+				}
+			}
+			periods++;
+		}
+	}
+}
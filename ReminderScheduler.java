@@ -0,0 +1,387 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+
+/**
+ * Reminds of events a number of minutes before they start.
+ *
+ * Pending reminders wait in a TimingWheel, so adding or cancelling one costs the same with a
+ * handful waiting or hundreds of thousands. The model keeps them up to date as events are
+ * created and deleted, and a new scheduler picks up the events already stored a month at a
+ * time, each month under its own read lock, so the calendar stays usable meanwhile.
+ * Repeating events are reminded of for the occurrences of the next day or so, topped up as
+ * the days go by.
+ *
+ * Time comes from a Clock. start() runs the scheduler on its own thread, waking each minute;
+ * without it nothing happens until advance() is called, so a test can move a SettableClock
+ * along and call advance() without waiting. Listeners are told on the Event Dispatch Thread.
+ */
+public class ReminderScheduler {
+
+	/**
+	 * Receives reminders
+	 */
+	public interface Listener {
+		/**
+		 * Called on the Event Dispatch Thread when reminders are due
+		 * @param events Events about to start, earliest reminder first
+		 */
+		void remind(List<Event> events);
+	}
+
+	/** Days of stored events picked up under one read lock */
+	private static final int REBUILD_DAYS = 31;
+	private static final int DONE = Integer.MAX_VALUE;
+
+	private final CalendarModel model;
+	private final Clock clock;
+	private final int leadMinutes;
+	private final TimingWheel wheel;
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	/** Pending occurrence reminders of each repeating event, by rule id */
+	private final HashMap<Integer, ArrayList<Event>> occurrences = new HashMap<Integer, ArrayList<Event>>();
+	/** First day of stored events not picked up yet, or DONE */
+	private int rebuildDay;
+	/** Last day whose occurrences have reminders */
+	private int horizon = Integer.MIN_VALUE;
+	private int prunedDay = Integer.MIN_VALUE;
+	/** Set when a reminder is due at once, so the thread does not wait out the minute */
+	private boolean woken;
+	private volatile Thread thread;
+
+	/**
+	 * Constructor for a scheduler reminding of the model's events; replaces any scheduler the
+	 * model had
+	 * @param model Calendar
+	 * @param leadMinutes Minutes before an event starts to remind of it
+	 * @param clock Source of the current time and time zone
+	 */
+	public ReminderScheduler(CalendarModel model, int leadMinutes, Clock clock) {
+		if (leadMinutes < 0) {
+			throw new IllegalArgumentException("Lead time must not be negative: " + leadMinutes);
+		}
+		this.model = model;
+		this.leadMinutes = leadMinutes;
+		this.clock = clock;
+		long now = currentMinute();
+		wheel = new TimingWheel(now);
+		rebuildDay = (int) Math.floorDiv(now, 1440);
+		model.setReminders(this);
+	}
+
+	/**
+	 * Adds a listener
+	 * @param l Listener
+	 */
+	public void attach(Listener l) {
+		listeners.add(l);
+	}
+
+	/**
+	 * Removes a listener
+	 * @param l Listener
+	 */
+	public void detach(Listener l) {
+		listeners.remove(l);
+	}
+
+	public int getLeadMinutes() {
+		return leadMinutes;
+	}
+
+	/**
+	 * Number of reminders waiting
+	 * @return count
+	 */
+	public synchronized int getPendingCount() {
+		return wheel.size();
+	}
+
+	/**
+	 * Checks whether the events stored when the scheduler was made have all been picked up
+	 * @return True once every stored event has its reminder
+	 */
+	public synchronized boolean isRebuilt() {
+		return rebuildDay == DONE;
+	}
+
+	/**
+	 * Starts the thread that calls advance() as time goes by
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			public void run() {
+				runLoop();
+			}
+		}, "calendar-reminders");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the thread and stops following the model's changes
+	 */
+	public void stop() {
+		Thread t;
+		synchronized (this) {
+			t = thread;
+			thread = null;
+			notifyAll();
+		}
+		if (t != null) {
+			t.interrupt();
+		}
+		model.setReminders(null);
+	}
+
+	/**
+	 * Catches up with the clock: picks up the next month of stored events while rebuilding,
+	 * tops up the reminders of repeating events, and hands out every reminder now due
+	 * @return events whose reminders were due, also given to the listeners
+	 */
+	public List<Event> advance() {
+		int fromDay, toDay;
+		synchronized (this) {
+			fromDay = rebuildDay;
+		}
+		if (fromDay != DONE && model.isLoaded()) {
+			// Under the model's read lock, so no change slips between reading and scheduling
+			toDay = fromDay + REBUILD_DAYS - 1;
+			boolean more = model.remindStored(this, fromDay, toDay);
+			synchronized (this) {
+				rebuildDay = more ? toDay + 1 : DONE;
+			}
+		}
+		long now = currentMinute();
+		int today = (int) Math.floorDiv(now, 1440);
+		// Far enough ahead for an occurrence early in the morning after the lead time
+		int last = today + 1 + leadMinutes / 1440;
+		synchronized (this) {
+			fromDay = Math.max(today, horizon + 1);
+		}
+		if (fromDay <= last && model.isLoaded()) {
+			model.remindOccurrences(this, fromDay, last);
+		}
+		ArrayList<Event> due = new ArrayList<Event>();
+		synchronized (this) {
+			wheel.advance(now, due);
+			if (today != prunedDay) {
+				pruneOccurrences();
+				prunedDay = today;
+			}
+		}
+		if (!due.isEmpty() && !listeners.isEmpty()) {
+			final List<Event> events = due;
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					for (Listener l : listeners) {
+						l.remind(events);
+					}
+				}
+			});
+		}
+		return due;
+	}
+
+	/**
+	 * Adds the reminder of a stored event that has not started yet; a reminder already due
+	 * is given out at once
+	 * @param e Event
+	 */
+	synchronized void schedule(Event e) {
+		long now = currentMinute();
+		if (e.getStartInstant() <= now) {
+			return;
+		}
+		long due = e.getStartInstant() - leadMinutes;
+		wheel.add(e, due);
+		if (due <= now) {
+			woken = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Adds the reminders of stored events
+	 * @param events Events
+	 */
+	synchronized void schedule(List<Event> events) {
+		for (Event e : events) {
+			schedule(e);
+		}
+	}
+
+	/**
+	 * Cancels the reminder of a stored event
+	 * @param e Event, matched by identity
+	 */
+	synchronized void cancel(Event e) {
+		wheel.remove(e);
+	}
+
+	/**
+	 * Replaces the occurrence reminders of a repeating event within the days already covered
+	 * @param old Rule before the change, or null if it is new
+	 * @param r Rule after the change, or null if it was removed
+	 */
+	synchronized void scheduleRule(Recurrence old, Recurrence r) {
+		ArrayList<Event> pending = occurrences.remove(old != null ? old.getId() : r.getId());
+		if (pending != null) {
+			for (Event e : pending) {
+				wheel.remove(e);
+			}
+		}
+		if (r != null && horizon != Integer.MIN_VALUE) {
+			// A changed rule leaves out reminders already due; they have been given out before
+			scheduleOccurrences(r, (int) Math.floorDiv(currentMinute(), 1440), horizon, old == null);
+		}
+	}
+
+	/**
+	 * Adds reminders for the occurrences of repeating events on more days
+	 * @param rules Every repeating event
+	 * @param fromDay First epoch day
+	 * @param toDay Last epoch day, from now on covered
+	 */
+	synchronized void scheduleOccurrences(List<Recurrence> rules, int fromDay, int toDay) {
+		for (Recurrence r : rules) {
+			scheduleOccurrences(r, fromDay, toDay, true);
+		}
+		horizon = toDay;
+	}
+
+	private void scheduleOccurrences(Recurrence r, int fromDay, int toDay, boolean late) {
+		long now = currentMinute();
+		for (int d = r.nextOccurrence(fromDay); d <= toDay; d = r.nextOccurrence(d + 1)) {
+			Event e = r.occurrence(d);
+			if (!late && e.getStartInstant() - leadMinutes <= now) {
+				continue;
+			}
+			schedule(e);
+			if (wheel.contains(e)) {
+				ArrayList<Event> pending = occurrences.get(r.getId());
+				if (pending == null) {
+					pending = new ArrayList<Event>();
+					occurrences.put(r.getId(), pending);
+				}
+				pending.add(e);
+			}
+		}
+	}
+
+	/**
+	 * Forgets occurrences whose reminders have been given out
+	 */
+	private void pruneOccurrences() {
+		for (Iterator<ArrayList<Event>> it = occurrences.values().iterator(); it.hasNext();) {
+			ArrayList<Event> pending = it.next();
+			for (Iterator<Event> events = pending.iterator(); events.hasNext();) {
+				if (!wheel.contains(events.next())) {
+					events.remove();
+				}
+			}
+			if (pending.isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Calls advance() until stopped, waiting for the next minute when there is nothing to do
+	 */
+	private void runLoop() {
+		Thread self = Thread.currentThread();
+		while (thread == self) {
+			try {
+				advance();
+			} catch (RuntimeException ex) {
+				ex.printStackTrace();
+			}
+			synchronized (this) {
+				boolean rebuilding = rebuildDay != DONE;
+				long millis = 60000 - Math.floorMod(clock.millis(), 60000L);
+				if (rebuilding && !model.isLoaded()) {
+					millis = Math.min(millis, 100);
+				}
+				try {
+					if (thread == self && !woken && !(rebuilding && model.isLoaded())) {
+						wait(Math.max(1, millis));
+					}
+				} catch (InterruptedException ex) {
+					return;
+				}
+				woken = false;
+			}
+		}
+	}
+
+	/**
+	 * Gets the clock's time as minutes from the epoch in its time zone, like Event instants
+	 */
+	private long currentMinute() {
+		LocalDateTime t = LocalDateTime.now(clock);
+		return t.toLocalDate().toEpochDay() * 1440L + t.getHour() * 60 + t.getMinute();
+	}
+
+	/**
+	 * A clock that stands still until it is set or moved on, for driving a scheduler in tests
+	 */
+	public static class SettableClock extends Clock {
+		private final ZoneId zone;
+		private volatile Instant instant;
+
+		/**
+		 * Constructor for a clock showing a given time
+		 * @param instant Time to show
+		 * @param zone Time zone
+		 */
+		public SettableClock(Instant instant, ZoneId zone) {
+			this.instant = instant;
+			this.zone = zone;
+		}
+
+		/**
+		 * Sets the time
+		 * @param instant Time to show
+		 */
+		public void set(Instant instant) {
+			this.instant = instant;
+		}
+
+		/**
+		 * Moves the time on
+		 * @param minutes Minutes to move on by
+		 */
+		public void advanceMinutes(long minutes) {
+			instant = instant.plusSeconds(minutes * 60);
+		}
+
+		public ZoneId getZone() {
+			return zone;
+		}
+
+		public Clock withZone(ZoneId zone) {
+			return new SettableClock(instant, zone);
+		}
+
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -1,10 +1,34 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Arrays;
+import javax.swing.SwingUtilities;
 
 public class SimpleCalendar {
 
-	public static void main(String[] args) {
-		CalendarModel cm = new CalendarModel();
-		CalendarView cv = new CalendarView(cm);
-		cm.attach(cv);
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("--server")) {
+			CalendarServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		EdtWatchdog.installIfConfigured();
+		// The window opens while the events load; it fills in as each month arrives
+		final CalendarModel cm = new CalendarModel(new File("."), true);
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				CalendarSet calendars = new CalendarSet(cm, new File("calendars"));
+				CalendarView cv = new CalendarView(cm, calendars);
+				cm.attach(cv);
+				calendars.attach(cv);
+				ReminderScheduler reminders = new ReminderScheduler(cm, Integer.getInteger("calendar.reminder.minutes", 15), Clock.systemDefaultZone());
+				reminders.attach(cv);
+				reminders.start();
+				if (cm.isLoaded() || cm.getLoadFailure() != null) {
+					// Loaded, or failed to, before the view was listening
+					cm.update();
+				}
+			}
+		});
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Events waiting for a moment to come, kept in a hierarchical timing wheel with a
+ * resolution of one minute. Times are minutes from the epoch, as Event instants are.
+ *
+ * Each of the LEVELS wheels has SLOTS slots; a slot of the first wheel covers a minute, and
+ * a slot of each wheel after it covers a whole turn of the one before. An event goes in the
+ * slot of the lowest wheel that reaches its time, and moves down a wheel each time the wheel
+ * below comes round to it, so it is handled at most LEVELS times however long it waits.
+ * Adding and removing an event are O(1): every slot is a doubly linked list, and events are
+ * found through an identity map. Times beyond the last wheel wait in an overflow list that
+ * is looked at once per turn of the last wheel, about every 32 years.
+ *
+ * Not thread-safe; ReminderScheduler only uses it while holding it.
+ */
+public class TimingWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int LEVELS = 4;
+
+	/** Sentinel of each slot's circular list */
+	private final Entry[][] slots = new Entry[LEVELS][SLOTS];
+	private final Entry overflow = new Entry(null, 0);
+	private final IdentityHashMap<Event, Entry> entries = new IdentityHashMap<Event, Entry>();
+	/** Events in each wheel, the overflow list last */
+	private final int[] counts = new int[LEVELS + 1];
+	/** Every event due up to this minute has been taken out */
+	private long now;
+
+	/**
+	 * Constructor for an empty wheel
+	 * @param now Current epoch minute
+	 */
+	public TimingWheel(long now) {
+		this.now = now;
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				slots[level][slot] = new Entry(null, 0);
+			}
+		}
+	}
+
+	/**
+	 * Number of events waiting
+	 * @return size
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the minute the wheel has reached
+	 * @return epoch minute
+	 */
+	public long getNow() {
+		return now;
+	}
+
+	/**
+	 * Checks whether an event is waiting
+	 * @param e Event, matched by identity
+	 * @return True if it is in the wheel
+	 */
+	public boolean contains(Event e) {
+		return entries.containsKey(e);
+	}
+
+	/**
+	 * Adds an event, replacing any time it already had
+	 * @param e Event
+	 * @param due Epoch minute it is due; one already past is due at once
+	 */
+	public void add(Event e, long due) {
+		remove(e);
+		Entry entry = new Entry(e, due);
+		entries.put(e, entry);
+		place(entry);
+	}
+
+	/**
+	 * Removes an event
+	 * @param e Event, matched by identity
+	 * @return True if it was waiting
+	 */
+	public boolean remove(Event e) {
+		Entry entry = entries.remove(e);
+		if (entry == null) {
+			return false;
+		}
+		counts[entry.level]--;
+		entry.unlink();
+		return true;
+	}
+
+	/**
+	 * Moves the wheel on to a minute, taking out every event due by then.
+	 * Minutes in which nothing can happen are skipped: while the lowest wheels are empty,
+	 * the wheel jumps to the next turn of the first one that is not.
+	 * @param to Epoch minute; nothing happens if the wheel is already past it
+	 * @param out Receives the due events, earliest first
+	 */
+	public void advance(long to, List<Event> out) {
+		drain(slots[0][(int) (now & (SLOTS - 1))], out);
+		while (now < to) {
+			int level = 0;
+			while (level <= LEVELS && counts[level] == 0) {
+				level++;
+			}
+			if (level > LEVELS) {
+				now = to;
+				return;
+			}
+			int bits = SLOT_BITS * Math.min(level, LEVELS);
+			now = Math.min(to, level == 0 ? now + 1 : ((now >> bits) + 1) << bits);
+			cascade();
+			drain(slots[0][(int) (now & (SLOTS - 1))], out);
+		}
+	}
+
+	/**
+	 * Moves the events of the slots that have come round down to lower wheels, highest
+	 * wheel first, once the wheel below has finished a turn
+	 */
+	private void cascade() {
+		int top = 0;
+		while (top < LEVELS && (now & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+			top++;
+		}
+		if (top == LEVELS) {
+			replace(overflow);
+			top--;
+		}
+		for (int level = top; level >= 1; level--) {
+			replace(slots[level][(int) ((now >>> (SLOT_BITS * level)) & (SLOTS - 1))]);
+		}
+	}
+
+	private void replace(Entry head) {
+		Entry entry = head.next;
+		head.next = head;
+		head.prev = head;
+		while (entry != head) {
+			Entry next = entry.next;
+			counts[entry.level]--;
+			place(entry);
+			entry = next;
+		}
+	}
+
+	private void drain(Entry head, List<Event> out) {
+		while (head.next != head) {
+			Entry entry = head.next;
+			counts[entry.level]--;
+			entry.unlink();
+			entries.remove(entry.event);
+			out.add(entry.event);
+		}
+	}
+
+	/**
+	 * Puts an entry in the slot of the lowest wheel that reaches its time
+	 */
+	private void place(Entry entry) {
+		long delta = entry.due - now;
+		int level = 0;
+		while (level < LEVELS && delta >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+		entry.level = level;
+		counts[level]++;
+		if (level == 0) {
+			// One due this minute or already past goes in the current slot, taken out on the next advance
+			long due = Math.max(entry.due, now);
+			slots[0][(int) (due & (SLOTS - 1))].append(entry);
+		} else if (level < LEVELS) {
+			slots[level][(int) ((entry.due >>> (SLOT_BITS * level)) & (SLOTS - 1))].append(entry);
+		} else {
+			overflow.append(entry);
+		}
+	}
+
+	private static class Entry {
+		final Event event;
+		final long due;
+		int level;
+		Entry prev = this;
+		Entry next = this;
+
+		Entry(Event event, long due) {
+			this.event = event;
+			this.due = due;
+		}
+
+		void append(Entry entry) {
+			entry.prev = prev;
+			entry.next = this;
+			prev.next = entry;
+			prev = entry;
+		}
+
+		void unlink() {
+			prev.next = next;
+			next.prev = prev;
+			prev = this;
+			next = this;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from the words of event titles to the events.
+ * Words are runs of letters and digits, lower-cased. They are kept in a sorted map, so
+ * every word starting with a prefix is one contiguous range of it, and each word maps to
+ * the set of events whose title contains it. Kept up to date by EventIndex as events are
+ * added, removed and read in from the snapshot.
+ */
+public class TitleIndex {
+
+	/** Most words of one prefix to look an event up in before checking its title instead */
+	private static final int MAX_LOOKUPS = 8;
+
+	private final TreeMap<String, HashSet<Event>> postings = new TreeMap<String, HashSet<Event>>();
+
+	/**
+	 * Adds an event under every word of its title
+	 * @param e Event
+	 */
+	public void add(Event e) {
+		for (String word : words(e.getTitle())) {
+			HashSet<Event> events = postings.get(word);
+			if (events == null) {
+				events = new HashSet<Event>();
+				postings.put(word, events);
+			}
+			events.add(e);
+		}
+	}
+
+	/**
+	 * Removes an event from under every word of its title
+	 * @param e Event
+	 */
+	public void remove(Event e) {
+		for (String word : words(e.getTitle())) {
+			HashSet<Event> events = postings.get(word);
+			if (events != null && events.remove(e) && events.isEmpty()) {
+				postings.remove(word);
+			}
+		}
+	}
+
+	/**
+	 * Finds the events whose title has, for every word of the query, a word starting with it
+	 * @param terms Lower-cased words from words(); the last one may be partly typed
+	 * @return matching events, in no particular order
+	 */
+	public List<Event> search(List<String> terms) {
+		ArrayList<Event> found = new ArrayList<Event>();
+		if (terms.isEmpty()) {
+			return found;
+		}
+		// Walk the term matching the fewest events and look the rest up in their own postings
+		ArrayList<Collection<HashSet<Event>>> ranges = new ArrayList<Collection<HashSet<Event>>>();
+		int rarest = 0;
+		int fewest = Integer.MAX_VALUE;
+		for (String term : terms) {
+			Collection<HashSet<Event>> range = withPrefix(term).values();
+			int count = 0;
+			for (HashSet<Event> events : range) {
+				count += events.size();
+			}
+			if (count == 0) {
+				return found;
+			}
+			if (count < fewest) {
+				fewest = count;
+				rarest = ranges.size();
+			}
+			ranges.add(range);
+		}
+		Collection<HashSet<Event>> walked = ranges.remove(rarest);
+		ArrayList<String> others = new ArrayList<String>(terms);
+		others.remove(rarest);
+		HashSet<Event> seen = walked.size() > 1 ? new HashSet<Event>() : null;
+		for (HashSet<Event> events : walked) {
+			for (Event e : events) {
+				if ((seen == null || seen.add(e)) && inAll(e, others, ranges)) {
+					found.add(e);
+				}
+			}
+		}
+		return found;
+	}
+
+	private static boolean inAll(Event e, List<String> terms, List<Collection<HashSet<Event>>> ranges) {
+		List<String> titleWords = null;
+		for (int i = 0; i < ranges.size(); i++) {
+			Collection<HashSet<Event>> range = ranges.get(i);
+			if (range.size() > MAX_LOOKUPS) {
+				// A short prefix of many words; cheaper to check the title itself
+				if (titleWords == null) {
+					titleWords = words(e.getTitle());
+				}
+				if (!startsAny(titleWords, terms.get(i))) {
+					return false;
+				}
+				continue;
+			}
+			boolean in = false;
+			for (HashSet<Event> events : range) {
+				if (events.contains(e)) {
+					in = true;
+					break;
+				}
+			}
+			if (!in) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether a title has a word starting with each of the terms
+	 * @param title Title
+	 * @param terms Lower-cased terms
+	 * @return True if every term matches
+	 */
+	public static boolean matches(String title, List<String> terms) {
+		List<String> words = words(title);
+		for (String term : terms) {
+			if (!startsAny(words, term)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean startsAny(List<String> words, String prefix) {
+		for (String word : words) {
+			if (word.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Splits text into distinct lower-case words of letters and digits
+	 * @param text Text
+	 * @return words, in order of first appearance
+	 */
+	public static List<String> words(String text) {
+		ArrayList<String> words = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (inWord && start < 0) {
+				start = i;
+			} else if (!inWord && start >= 0) {
+				String word = text.substring(start, i).toLowerCase();
+				if (!words.contains(word)) {
+					words.add(word);
+				}
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	private SortedMap<String, HashSet<Event>> withPrefix(String prefix) {
+		return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+	}
+
+	/**
+	 * Number of distinct words indexed
+	 * @return size
+	 */
+	public int size() {
+		return postings.size();
+	}
+
+}
@@ -0,0 +1,180 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Benchmarks the CalendarModel hot paths on generated calendars.
+ *
+ * Each operation is warmed up and then timed over at most OPS calls or about two seconds,
+ * whichever comes first. The report gives the average time per operation and the bytes
+ * allocated per operation on the benchmark thread.
+ * Calendars are generated with a realistic density (a few events on most days) and a
+ * skewed one (most events piled onto a handful of days).
+ *
+ * Build and run from the project directory:
+ *   javac -d out *.java bench/*.java
+ *   java -cp out CalendarBenchmark [sizes, default 1000,100000,1000000]
+ */
+public class CalendarBenchmark {
+
+	private static final int OPS = 20000;
+	private static final int IO_OPS = 5;
+	private static final long TIME_LIMIT_NANOS = 2000000000L;
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static volatile Object sink;
+
+	/**
+	 * One benchmarked operation
+	 */
+	private interface Op {
+		void run(int i) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String sizes = args.length > 0 ? args[0] : "1000,100000,1000000";
+		System.out.printf("%-18s %-9s %9s %14s %12s%n", "operation", "density", "events", "ns/op", "B/op");
+		for (String size : sizes.split(",")) {
+			int events = Integer.parseInt(size.trim());
+			run(events, false);
+			run(events, true);
+		}
+	}
+
+	private static void run(int events, boolean skewed) throws IOException {
+		final String density = skewed ? "skewed" : "realistic";
+		final File dir = createTempDirectory();
+		final Random random = new Random(42);
+		final int[] days = generate(dir, events, skewed, random);
+		final String[] dates = new String[days.length];
+		for (int i = 0; i < days.length; i++) {
+			dates[i] = DateKey.format(days[i]);
+		}
+		final String[] times = new String[48];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = String.format("%02d:%02d", i / 2, i % 2 * 30);
+		}
+
+		measure("load", density, events, IO_OPS, new Op() {
+			public void run(int i) {
+				CalendarModel loaded = new CalendarModel(dir);
+				loaded.goToDate(days[0]);
+				sink = Boolean.valueOf(loaded.hasEvent(days[0]));
+				loaded.close();
+			}
+		});
+
+		final CalendarModel model = new CalendarModel(dir);
+		measure("hasEvent", density, events, OPS, new Op() {
+			public void run(int i) {
+				sink = Boolean.valueOf(model.hasEvent(dates[i % dates.length]));
+			}
+		});
+		measure("getEvents", density, events, OPS, new Op() {
+			public void run(int i) {
+				sink = model.getEvents(dates[i % dates.length]);
+			}
+		});
+		measure("hasEventConflict", density, events, OPS, new Op() {
+			public void run(int i) {
+				model.goToDate(days[i % days.length]);
+				int slot = i % (times.length - 1);
+				sink = model.hasEventConflict(times[slot], times[slot + 1]);
+			}
+		});
+		measure("createEvent", density, events, OPS, new Op() {
+			public void run(int i) {
+				model.goToDate(days[i % days.length]);
+				int slot = i % (times.length - 1);
+				model.createEvent("Bench " + i, times[slot], times[slot + 1]);
+			}
+		});
+		measure("save", density, events, IO_OPS, new Op() {
+			public void run(int i) {
+				model.goToDate(days[i % days.length]);
+				model.createEvent("Save " + i, "23:00", "23:30");
+				model.save();
+			}
+		});
+		model.close();
+		deleteDirectory(dir);
+	}
+
+	/**
+	 * Writes a generated calendar as the snapshot of a directory
+	 * @return days to query, drawn the same way as the events
+	 */
+	private static int[] generate(File dir, int events, boolean skewed, Random random) throws IOException {
+		int averagePerDay = 4;
+		int span = Math.max(1, events / averagePerDay);
+		int firstDay = DateKey.of(2017, 1, 1);
+		EventIndex index = new EventIndex();
+		for (int i = 0; i < events; i++) {
+			int day = firstDay + pickDay(span, skewed, random);
+			int start = random.nextInt(46) * 30;
+			index.add(day, new Event("Event " + i, DateKey.format(day), time(start), time(start + 30)));
+		}
+		EventStore.write(new File(dir, "events.snapshot"), index, null, -1);
+		int[] days = new int[1024];
+		for (int i = 0; i < days.length; i++) {
+			days[i] = firstDay + pickDay(span, skewed, random);
+		}
+		return days;
+	}
+
+	private static int pickDay(int span, boolean skewed, Random random) {
+		if (skewed) {
+			double r = random.nextDouble();
+			return (int) (span * r * r * r * r);
+		}
+		return random.nextInt(span);
+	}
+
+	private static String time(int minutes) {
+		return String.format("%02d:%02d", minutes / 60, minutes % 60);
+	}
+
+	private static void measure(String name, String density, int events, int ops, Op op) throws IOException {
+		long deadline = System.nanoTime() + TIME_LIMIT_NANOS;
+		for (int i = 0; i < ops && System.nanoTime() < deadline; i++) {
+			op.run(i);
+		}
+		long thread = Thread.currentThread().getId();
+		long bytes = THREADS.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		deadline = start + TIME_LIMIT_NANOS;
+		int done = 0;
+		while (done < ops && (done == 0 || System.nanoTime() < deadline)) {
+			op.run(ops + done);
+			done++;
+		}
+		long elapsed = System.nanoTime() - start;
+		bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+		System.out.printf("%-18s %-9s %9d %14.1f %12d%n", name, density, events, (double) elapsed / done, bytes / done);
+	}
+
+	private static File createTempDirectory() throws IOException {
+		File dir = File.createTempFile("calendar-bench", "");
+		dir.delete();
+		dir.mkdir();
+		return dir;
+	}
+
+	private static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,192 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for CalendarServer.
+ *
+ * Many clients each send requests back to back for a fixed time: mostly range queries, with
+ * conflict checks, free-slot searches, creates and deletes mixed in. Reports throughput and
+ * the latency percentiles over every request. A 409 for a conflicting create is an answer,
+ * not an error; 5xx replies and failed connections are errors.
+ *
+ * With no URL a server is started in this JVM over a fresh calendar in a temporary directory.
+ *
+ * Build and run from the project directory:
+ *   javac -d out *.java bench/*.java
+ *   java -cp out CalendarLoad [clients] [seconds] [url]
+ */
+public class CalendarLoad {
+
+	private static final int SPAN = 365;
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		final long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+		File dir = null;
+		CalendarModel model = null;
+		CalendarServer server = null;
+		String url;
+		if (args.length > 2) {
+			url = args[2].endsWith("/") ? args[2] : args[2] + "/";
+		} else {
+			dir = createTempDirectory();
+			model = new CalendarModel(dir);
+			server = new CalendarServer(model, 0);
+			server.start();
+			url = "http://127.0.0.1:" + server.getPort() + "/";
+		}
+		final String base = url;
+		final int firstDay = (int) java.time.LocalDate.now().toEpochDay();
+		final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		final long[][] latencies = new long[clients][];
+		final int[] counts = new int[clients];
+		final AtomicLong errors = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(clients);
+		ExecutorService pool = newClientExecutor();
+		for (int c = 0; c < clients; c++) {
+			final int id = c;
+			latencies[id] = new long[1024];
+			pool.execute(new Runnable() {
+				public void run() {
+					Random random = new Random(id);
+					try {
+						start.await();
+						long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+						while (System.nanoTime() < stopAt) {
+							HttpRequest request = nextRequest(base, random, firstDay);
+							long began = System.nanoTime();
+							try {
+								HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+								if (response.statusCode() >= 500) {
+									errors.incrementAndGet();
+								}
+							} catch (IOException ex) {
+								errors.incrementAndGet();
+							}
+							if (counts[id] == latencies[id].length) {
+								latencies[id] = Arrays.copyOf(latencies[id], counts[id] * 2);
+							}
+							latencies[id][counts[id]++] = System.nanoTime() - began;
+						}
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+		long began = System.nanoTime();
+		start.countDown();
+		done.await();
+		double elapsed = (System.nanoTime() - began) / 1e9;
+		pool.shutdown();
+
+		int total = 0;
+		for (int n : counts) {
+			total += n;
+		}
+		long[] all = new long[total];
+		int p = 0;
+		for (int c = 0; c < clients; c++) {
+			System.arraycopy(latencies[c], 0, all, p, counts[c]);
+			p += counts[c];
+		}
+		Arrays.sort(all);
+		System.out.printf("%d clients for %.1f s: %d requests, %.0f requests/s, %d errors%n",
+				clients, elapsed, total, total / elapsed, errors.get());
+		if (total > 0) {
+			System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+					percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), all[total - 1] / 1e6);
+		}
+		if (server != null) {
+			server.stop();
+			model.close();
+			deleteDirectory(dir);
+		}
+		System.exit(0);
+	}
+
+	private static HttpRequest nextRequest(String base, Random random, int firstDay) {
+		int day = firstDay + random.nextInt(SPAN);
+		String date = encode(DateKey.format(day));
+		int roll = random.nextInt(100);
+		if (roll < 60) {
+			return get(base + "events?from=" + date + "&to=" + encode(DateKey.format(day + 6)));
+		} else if (roll < 75) {
+			int minute = random.nextInt(23 * 60);
+			return get(base + "conflict?date=" + date + "&start=" + time(minute) + "&end=" + time(minute + 30));
+		} else if (roll < 85) {
+			return get(base + "free?from=" + date + "&to=" + encode(DateKey.format(day + 6)) + "&minutes=45&start=09:00&end=17:00&limit=10");
+		} else if (roll < 97) {
+			int minute = random.nextInt(23 * 60);
+			return HttpRequest.newBuilder(URI.create(base + "events?date=" + date + "&title=load+" + random.nextInt(1000)
+					+ "&start=" + time(minute) + "&end=" + time(minute + 30))).POST(HttpRequest.BodyPublishers.noBody()).build();
+		}
+		return HttpRequest.newBuilder(URI.create(base + "events?date=" + date + "&index=1")).DELETE().build();
+	}
+
+	private static HttpRequest get(String url) {
+		return HttpRequest.newBuilder(URI.create(url)).GET().build();
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+	}
+
+	/**
+	 * One virtual thread per client where the JVM has them, otherwise one platform thread each
+	 */
+	private static ExecutorService newClientExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	private static String encode(String s) {
+		return URLEncoder.encode(s, StandardCharsets.UTF_8);
+	}
+
+	private static String time(int minutes) {
+		return minutes / 60 + ":" + (minutes % 60 < 10 ? "0" : "") + minutes % 60;
+	}
+
+	private static File createTempDirectory() throws IOException {
+		File dir = File.createTempFile("calendar-load", "");
+		dir.delete();
+		dir.mkdir();
+		return dir;
+	}
+
+	private static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}
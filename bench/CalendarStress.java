@@ -0,0 +1,247 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress check for a CalendarModel shared between threads.
+ *
+ * Writer threads create and delete events while reader threads query days, ranges and
+ * month masks and another thread moves between months. This runs in a child JVM, which
+ * then checks the model and writes down every event it holds, and halts without saving,
+ * as in a crash. The parent reloads the calendar from the snapshot and journal left
+ * behind and checks it again, then once more after a clean close.
+ *
+ * The checks:
+ *   every created and not deleted event is found, and no reader failed;
+ *   each day's events are in starting-time order;
+ *   conflict checks, which rely on each day's running latest end, agree with a scan of
+ *   the day's events;
+ *   the calendar replayed from the journal holds exactly the events the model held.
+ * Prints FAILED and exits with status 1 if any check fails.
+ *
+ * Build and run from the project directory:
+ *   javac -d out *.java bench/*.java
+ *   java -cp out CalendarStress [writers, readers, events per writer]
+ */
+public class CalendarStress {
+
+	private static final int SPAN = 365;
+	private static final int PROBES_PER_DAY = 8;
+	private static final String EXPECTED_FILE = "stress-expected.txt";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("--child")) {
+			Runtime.getRuntime().halt(child(new File(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4])));
+		}
+		int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int perWriter = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+		File dir = createTempDirectory();
+		boolean ok;
+		try {
+			Process p = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+					"-cp", System.getProperty("java.class.path"), "-Djava.awt.headless=true", CalendarStress.class.getName(),
+					"--child", dir.getPath(), String.valueOf(writers), String.valueOf(readers), String.valueOf(perWriter))
+					.inheritIO().start();
+			ok = p.waitFor() == 0;
+			if (ok) {
+				List<String> expected = Files.readAllLines(new File(dir, EXPECTED_FILE).toPath(), StandardCharsets.UTF_8);
+				int firstDay = Integer.parseInt(expected.remove(0));
+				CalendarModel replayed = new CalendarModel(dir);
+				ok &= check("replayed from the journal", replayed, firstDay, expected);
+				replayed.close();
+				CalendarModel reloaded = new CalendarModel(dir);
+				ok &= check("reloaded from the snapshot", reloaded, firstDay, expected);
+				reloaded.close();
+			}
+		} finally {
+			deleteDirectory(dir);
+		}
+		System.out.println(ok ? "OK" : "FAILED");
+		System.exit(ok ? 0 : 1);
+	}
+
+	/**
+	 * Runs the threads against a model, checks it and writes down its events
+	 * @return exit status for the child JVM
+	 */
+	private static int child(File dir, int writers, int readers, final int perWriter) throws Exception {
+		final CalendarModel model = new CalendarModel(dir);
+		final int firstDay = model.getMonthLayout().getFirstDay();
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger writing = new AtomicInteger(writers);
+		final AtomicInteger deleted = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicLong reads = new AtomicLong();
+		Thread[] threads = new Thread[writers + readers + 1];
+		for (int w = 0; w < writers; w++) {
+			final int id = w;
+			threads[w] = new Thread(new Runnable() {
+				public void run() {
+					Random random = new Random(id);
+					await(start);
+					for (int i = 0; i < perWriter; i++) {
+						int minute = random.nextInt(24 * 60 - 30);
+						model.createEvent(firstDay + random.nextInt(SPAN), "w" + id + "-" + i, time(minute), time(minute + 30));
+						if (i % 10 == 9 && model.deleteEvent(firstDay + random.nextInt(SPAN), 0)) {
+							deleted.incrementAndGet();
+						}
+					}
+					writing.decrementAndGet();
+				}
+			});
+		}
+		for (int r = 0; r < readers; r++) {
+			final int id = r;
+			threads[writers + r] = new Thread(new Runnable() {
+				public void run() {
+					Random random = new Random(100 + id);
+					await(start);
+					while (writing.get() > 0) {
+						try {
+							int day = firstDay + random.nextInt(SPAN);
+							model.hasEvent(day);
+							model.getEvents(day);
+							model.hasEventConflict(day, 600, 660);
+							model.getEventsBetween(day, day + 6);
+							model.getEventMask();
+							reads.addAndGet(5);
+							// Writers force every change to disk under the write lock; without
+							// yielding, readers keep the lock shared and writers barely get in
+							Thread.yield();
+						} catch (RuntimeException ex) {
+							ex.printStackTrace();
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+		threads[writers + readers] = new Thread(new Runnable() {
+			public void run() {
+				await(start);
+				while (writing.get() > 0) {
+					model.goNextMonth();
+					model.getSelectedDay();
+					model.goPreviousMonth();
+				}
+			}
+		});
+		for (Thread t : threads) {
+			t.start();
+		}
+		long began = System.nanoTime();
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+		long millis = (System.nanoTime() - began) / 1000000;
+		int expected = writers * perWriter - deleted.get();
+		List<String> events = describe(model, firstDay);
+		System.out.printf("%d writers, %d readers: %d creates, %d deletes and %d reads in %d ms%n",
+				writers, readers, writers * perWriter, deleted.get(), reads.get(), millis);
+		System.out.printf("expected %d, found %d, reader failures %d%n", expected, events.size(), failures.get());
+		boolean ok = events.size() == expected && failures.get() == 0;
+		ok &= check("running", model, firstDay, events);
+		// Written before halting, so the parent can compare the calendar it reloads
+		ArrayList<String> lines = new ArrayList<String>(events.size() + 1);
+		lines.add(String.valueOf(firstDay));
+		lines.addAll(events);
+		Files.write(new File(dir, EXPECTED_FILE).toPath(), lines, StandardCharsets.UTF_8);
+		return ok ? 0 : 1;
+	}
+
+	/**
+	 * Checks the day invariants of a model and that it holds the expected events
+	 * @return True if every check passed
+	 */
+	private static boolean check(String name, CalendarModel model, int firstDay, List<String> expected) {
+		int unsorted = 0;
+		int wrongConflicts = 0;
+		Random random = new Random(firstDay);
+		for (int day = firstDay; day < firstDay + SPAN; day++) {
+			List<Event> events = model.getStoredEventsBetween(day, day);
+			for (int i = 1; i < events.size(); i++) {
+				if (events.get(i - 1).getStartMinute() > events.get(i).getStartMinute()) {
+					unsorted++;
+				}
+			}
+			for (int p = 0; p < PROBES_PER_DAY; p++) {
+				int start = random.nextInt(24 * 60);
+				int end = start + random.nextInt(120);
+				if (model.hasEventConflict(day, start, end) != scanForConflict(events, start, end)) {
+					wrongConflicts++;
+				}
+			}
+		}
+		List<String> actual = describe(model, firstDay);
+		boolean same = actual.equals(expected);
+		System.out.printf("%s: %d events, %d days out of order, %d wrong conflict checks, %s%n", name, actual.size(),
+				unsorted, wrongConflicts, same ? "same events" : "different events");
+		return unsorted == 0 && wrongConflicts == 0 && same;
+	}
+
+	private static boolean scanForConflict(List<Event> events, int start, int end) {
+		for (Event e : events) {
+			if (e.getStartMinute() < Math.max(end, start + 1) && e.getEndMinute() > start) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Describes every stored event of the stressed days, sorted, for comparing calendars
+	 */
+	private static List<String> describe(CalendarModel model, int firstDay) {
+		ArrayList<String> events = new ArrayList<String>();
+		for (Event e : model.getStoredEventsBetween(firstDay, firstDay + SPAN)) {
+			events.add(e.getDate() + " " + e);
+		}
+		Collections.sort(events);
+		return events;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String time(int minutes) {
+		return minutes / 60 + ":" + (minutes % 60 < 10 ? "0" : "") + minutes % 60;
+	}
+
+	private static File createTempDirectory() throws IOException {
+		File dir = File.createTempFile("calendar-stress", "");
+		dir.delete();
+		dir.mkdir();
+		return dir;
+	}
+
+	private static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}
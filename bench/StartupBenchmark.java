@@ -0,0 +1,195 @@
+/**Program Assignment #4: Simple GUI Calendar
+ * Author: Michelle Luong
+ * Copyright (C) 2017 Michelle Luong. All Rights Reserved.
+ * Version: 1.01 5/11/2017
+ */
+
+import java.awt.AWTEvent;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.PaintEvent;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Measures how long the calendar takes to start against the size of its history, loading
+ * everything before the window opens ("blocking") and loading in the background ("staged").
+ *
+ * Each run is a fresh JVM, and times are from the JVM's start:
+ *   window  - the window is first painted
+ *   month   - the current month's highlight and the selected day's events are shown
+ *   history - every month has been read in (staged only; blocking reads months on demand)
+ * With no display the window is not created, and "window" is when the view could first
+ * paint: the model has answered the queries the view makes when it is built.
+ *
+ * Build and run from the project directory:
+ *   javac -d out *.java bench/*.java
+ *   java -cp out StartupBenchmark [sizes, default 1000,100000,1000000] [runs, default 3]
+ */
+public class StartupBenchmark {
+
+	private static final int EVENTS_PER_DAY = 4;
+
+	private static volatile long windowMillis;
+	private static volatile long monthMillis;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("--child")) {
+			child(new File(args[1]), args[2].equals("staged"));
+			return;
+		}
+		String sizes = args.length > 0 ? args[0] : "1000,100000,1000000";
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		System.out.printf("%9s %-9s %10s %10s %10s%n", "events", "mode", "window ms", "month ms", "history ms");
+		for (String size : sizes.split(",")) {
+			int events = Integer.parseInt(size.trim());
+			File dir = createTempDirectory();
+			generate(dir, events, new Random(42));
+			for (String mode : new String[] { "blocking", "staged" }) {
+				long[][] times = new long[3][runs];
+				for (int r = 0; r < runs; r++) {
+					long[] run = runChild(dir, mode);
+					for (int i = 0; i < 3; i++) {
+						times[i][r] = run[i];
+					}
+				}
+				System.out.printf("%9d %-9s %10s %10s %10s%n", events, mode, median(times[0]), median(times[1]), median(times[2]));
+			}
+			deleteDirectory(dir);
+		}
+	}
+
+	/**
+	 * Starts the calendar the way SimpleCalendar does and prints the window, month and
+	 * history times, -1 for one that does not apply
+	 */
+	private static void child(File dir, boolean staged) throws Exception {
+		final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+		final CalendarModel model = new CalendarModel(dir, staged);
+		if (GraphicsEnvironment.isHeadless()) {
+			model.getEventMask();
+			model.getEvents(model.getSelectedDay());
+			windowMillis = System.currentTimeMillis() - jvmStart;
+			while (!model.isLoaded()) {
+				Thread.sleep(1);
+			}
+			model.getEventMask();
+			model.getEvents(model.getSelectedDay());
+			monthMillis = System.currentTimeMillis() - jvmStart;
+		} else {
+			Toolkit.getDefaultToolkit().addAWTEventListener(new AWTEventListener() {
+				public void eventDispatched(AWTEvent event) {
+					if (windowMillis == 0 && event.getID() == PaintEvent.PAINT) {
+						windowMillis = System.currentTimeMillis() - jvmStart;
+					}
+				}
+			}, AWTEvent.PAINT_EVENT_MASK);
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					CalendarView view = new CalendarView(model, new CalendarSet(model, null));
+					model.attach(view);
+					model.attach(new ChangeListener() {
+						public void stateChanged(ChangeEvent e) {
+							// Runs after the view has repainted itself for the same change
+							if (model.isLoaded() && monthMillis == 0) {
+								monthMillis = System.currentTimeMillis() - jvmStart;
+							}
+						}
+					});
+					if (model.isLoaded()) {
+						model.update();
+					}
+				}
+			});
+			while (windowMillis == 0 || monthMillis == 0) {
+				Thread.sleep(1);
+			}
+		}
+		long historyMillis = -1;
+		if (staged) {
+			while (!model.isHistoryLoaded()) {
+				Thread.sleep(1);
+			}
+			historyMillis = System.currentTimeMillis() - jvmStart;
+		}
+		System.out.println(windowMillis + " " + monthMillis + " " + historyMillis);
+		System.exit(0);
+	}
+
+	private static long[] runChild(File dir, String mode) throws IOException, InterruptedException {
+		String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+		List<String> command = Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+				"StartupBenchmark", "--child", dir.getPath(), mode);
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		String last = null;
+		while ((line = out.readLine()) != null) {
+			last = line;
+		}
+		if (process.waitFor() != 0 || last == null) {
+			throw new IOException("Startup run failed: " + last);
+		}
+		String[] fields = last.trim().split(" ");
+		long[] times = new long[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			times[i] = Long.parseLong(fields[i]);
+		}
+		return times;
+	}
+
+	/**
+	 * Writes a snapshot of history running up to this month, a few events a day
+	 */
+	private static void generate(File dir, int events, Random random) throws IOException {
+		int span = Math.max(1, events / EVENTS_PER_DAY);
+		int lastDay = (int) LocalDate.now().withDayOfMonth(1).plusMonths(1).toEpochDay();
+		int firstDay = lastDay - span;
+		EventIndex index = new EventIndex();
+		for (int i = 0; i < events; i++) {
+			int day = firstDay + random.nextInt(span);
+			int start = random.nextInt(46) * 30;
+			index.add(day, new Event("Event " + i, DateKey.format(day), time(start), time(start + 30)));
+		}
+		EventStore.write(new File(dir, "events.snapshot"), index, null, -1);
+	}
+
+	private static String median(long[] times) {
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		long median = sorted[sorted.length / 2];
+		return median < 0 ? "-" : Long.toString(median);
+	}
+
+	private static String time(int minutes) {
+		return String.format("%02d:%02d", minutes / 60, minutes % 60);
+	}
+
+	private static File createTempDirectory() throws IOException {
+		File dir = File.createTempFile("calendar-startup", "");
+		dir.delete();
+		dir.mkdir();
+		return dir;
+	}
+
+	private static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}